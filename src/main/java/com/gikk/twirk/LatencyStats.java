@@ -0,0 +1,79 @@
+package com.gikk.twirk;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the time spent in one stage of handling incoming lines. Recording is lock free, so it can
+ * be done from any number of threads.<br><br>
+ * <p>
+ * Instances are obtained through {@link Twirk#getStageStats()}.
+ */
+public class LatencyStats {
+
+    //***********************************************************************************************
+    //											VARIABLES
+    //***********************************************************************************************
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    //***********************************************************************************************
+    //											PUBLIC
+    //***********************************************************************************************
+
+    /**
+     * Retrieves how many lines passed this stage since the last reset.
+     *
+     * @return The number of recorded lines
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Retrieves the average time a line spent in this stage since the last reset.
+     *
+     * @return The average time in microseconds, or 0 if nothing was recorded
+     */
+    public long getAverageMicros() {
+        final long n = count.sum();
+        return n == 0 ? 0 : total.sum() / n / 1000L;
+    }
+
+    /**
+     * Retrieves the longest time a line spent in this stage since the last reset.
+     *
+     * @return The maximum time in microseconds
+     */
+    public long getMaxMicros() {
+        return max.get() / 1000L;
+    }
+
+    /**
+     * Clears all recorded values.
+     */
+    public void reset() {
+        count.reset();
+        total.reset();
+        max.set(0L);
+    }
+
+    @Override
+    public String toString() {
+        return "n=" + getCount() + " avg=" + getAverageMicros() + "us max=" + getMaxMicros() + "us";
+    }
+
+    //***********************************************************************************************
+    //										PRIVATE and PACKAGE
+    //***********************************************************************************************
+    void record(long nanos) {
+        count.increment();
+        total.add(nanos);
+        long prev;
+        while (nanos > (prev = max.get()) && !max.compareAndSet(prev, nanos)) {
+            //Retry, another thread recorded a new maximum in the meantime
+        }
+    }
+
+}
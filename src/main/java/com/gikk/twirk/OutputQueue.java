@@ -1,16 +1,20 @@
 package com.gikk.twirk;
 
 import java.util.LinkedList;
+import java.util.PriorityQueue;
 
 /**
  * We need a specialized messaging queue to be able to handle <ul>
  * <li>A) one consumer/multiple producers and
- * <li>B) being able to put messages to the front and back of the queue.
+ * <li>B) being able to put messages to the front and back of the queue and
+ * <li>C) being able to hold messages back until a given time, and drop them if they could not be sent in time.
  * </ul>
  * We also want the {@link #next()} method to block until there is anything to send to the IRC server in the
  * queue.<br><br>
  * <p>
  * Due to these reasons, we cannot use a normal queue. Thus we use this thread safe and blocking implementation.
+ * Delayed messages wait in a priority queue ordered by their not-before time, and are moved to the back of the
+ * normal queue once they are due. From there on they are rate limited like any other message.
  *
  * @author Gikkman
  */
@@ -19,7 +23,11 @@ class OutputQueue {
     //***********************************************************************************************
     //											VARIABLES
     //***********************************************************************************************
-    private final LinkedList<String> queue = new LinkedList<>();
+    private final LinkedList<Entry> queue = new LinkedList<>();
+    private final PriorityQueue<Entry> delayed = new PriorityQueue<>();
+    private long sequence = 0;
+    private long releases = 0;
+    private long dropped = 0;
 
     //***********************************************************************************************
     //											PUBLIC
@@ -32,7 +40,7 @@ class OutputQueue {
      */
     public void add(String s) {
         synchronized (queue) {
-            queue.add(s);
+            queue.add(new Entry(s, 0, 0, sequence++));
             queue.notify();
         }
     }
@@ -45,58 +53,133 @@ class OutputQueue {
      */
     public void addFirst(String s) {
         synchronized (queue) {
-            queue.addFirst(s);
+            queue.addFirst(new Entry(s, 0, 0, sequence++));
+            queue.notify();
+        }
+    }
+
+    /**
+     * Adds a message that will not be sent before the given time. Once due, it is added to the back of the
+     * output queue. If a deadline is given and the message could not be sent before it, the message is dropped.
+     *
+     * @param s         The message to add to the queue
+     * @param notBefore The earliest time to send the message at, in milliseconds since the epoch
+     * @param deadline  The latest time to send the message at, in milliseconds since the epoch, or {@code 0} for no deadline
+     */
+    public void addDelayed(String s, long notBefore, long deadline) {
+        synchronized (queue) {
+            delayed.add(new Entry(s, notBefore, deadline, sequence++));
             queue.notify();
         }
     }
 
     /**
      * A <b>blocking</b> call that retrieves the next message from the queue.
-     * If no message is currently in the queue, this method will block until a message appears.
+     * If no message is currently in the queue, this method will block until a message appears
+     * or a delayed message becomes due.
      *
      * @return The next message OR <code>null</code>(if we were interrupted and there were no message in the queue)
      */
     public String next() {
         synchronized (queue) {
-            if (!hasNext()) {
+            final long release = releases;
+            while (true) {
+                final long now = System.currentTimeMillis();
+                promote(now);
+                while (!queue.isEmpty()) {
+                    final Entry entry = queue.removeFirst();
+                    if (entry.deadline > 0 && entry.deadline < now) {
+                        dropped++;
+                        continue;
+                    }
+                    return entry.message;
+                }
+
+                if (releases != release) {
+                    return null;
+                }
+
                 try {
-                    queue.wait();
+                    if (delayed.isEmpty()) {
+                        queue.wait();
+                    } else {
+                        queue.wait(Math.max(1, delayed.peek().notBefore - now));
+                    }
                 } catch (InterruptedException e) {
                     /* Being interrupted either means that there now is an element in the queue or
                      * that the application is shutting down.
                      * Anyway, we don't need to care about being interrupted, we simply proceed as
                      * usual and let the thread waiting for input handle the potential null return */
+                    return queue.isEmpty() ? null : queue.removeFirst().message;
                 }
             }
-            if (!hasNext()) {
-                return null;
-            }
-
-            String message = queue.getFirst();
-            queue.removeFirst();
-            return message;
         }
     }
 
     /**
-     * Checks if there are any elements currently in the queue
+     * Checks if there are any elements currently in the queue. Delayed messages that are not due yet are not counted.
      *
      * @return {@code true} if there are any messages in the queue
      */
     public boolean hasNext() {
         synchronized (queue) {
+            promote(System.currentTimeMillis());
             return queue.size() > 0;
         }
     }
 
+    /**
+     * Retrieves the number of delayed messages that were dropped because they missed their deadline.
+     *
+     * @return The number of dropped messages
+     */
+    public long getDroppedCount() {
+        synchronized (queue) {
+            return dropped;
+        }
+    }
+
     /**
      * This will cause all threads waiting for new content in the {@code queue} to wake up. <br>
      * If there is no content when this call is issued, waiting threads will return {@code null}
      */
     void releaseWaitingThreads() {
         synchronized (queue) {
+            releases++;
             queue.notifyAll();
         }
     }
 
+    //***********************************************************************************************
+    //											PRIVATE
+    //***********************************************************************************************
+
+    private void promote(long now) {
+        while (!delayed.isEmpty() && delayed.peek().notBefore <= now) {
+            queue.add(delayed.poll());
+        }
+    }
+
+    private static class Entry implements Comparable<Entry> {
+
+        private final String message;
+        private final long notBefore;
+        private final long deadline;
+        private final long sequence;
+
+        private Entry(String message, long notBefore, long deadline, long sequence) {
+            this.message = message;
+            this.notBefore = notBefore;
+            this.deadline = deadline;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Entry o) {
+            final int c = Long.compare(notBefore, o.notBefore);
+            return c != 0 ? c : Long.compare(sequence, o.sequence);
+        }
+
+    }
+
 }
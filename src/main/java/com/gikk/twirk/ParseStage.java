@@ -0,0 +1,185 @@
+package com.gikk.twirk;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Optional pipeline stage, which parses incoming lines on a pool of worker threads.<br><br>
+ * <p>
+ * Every line is assigned to a lane by the channel it targets. Parsed lines are handed to the dispatcher in the
+ * order they arrived within their lane, so listener callbacks for one channel never overtake each other. Lanes
+ * do not wait for each other, so a line that takes long to parse only holds back later lines of its own
+ * channel.<br><br>
+ * <p>
+ * If all workers are busy and the backlog is full, the submitting thread parses the line itself. This
+ * slows down reading from the socket instead of buffering an unbounded number of lines.
+ */
+class ParseStage<T> {
+
+    //***********************************************************************************************
+    //											VARIABLES
+    //***********************************************************************************************
+    private static final int MAX_BACKLOG = 4096;
+
+    private final Function<String, T> parser;
+    private final Consumer<T> dispatcher;
+    private final ThreadPoolExecutor workers;
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+
+    final LatencyStats queueStats = new LatencyStats();
+    final LatencyStats reorderStats = new LatencyStats();
+    private final LatencyStats parseStats;
+    private final LatencyStats dispatchStats;
+
+    //***********************************************************************************************
+    //											CONSTRUCTOR
+    //***********************************************************************************************
+    ParseStage(int parallelism, Function<String, T> parser, Consumer<T> dispatcher,
+               LatencyStats parseStats, LatencyStats dispatchStats) {
+        this.parser = parser;
+        this.dispatcher = dispatcher;
+        this.parseStats = parseStats;
+        this.dispatchStats = dispatchStats;
+
+        final AtomicInteger count = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAX_BACKLOG), r -> {
+            Thread thread = new Thread(r, "Twirk-ParseThread-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    //***********************************************************************************************
+    //										PRIVATE and PACKAGE
+    //***********************************************************************************************
+    void submit(String line) {
+        final Lane lane = lanes.computeIfAbsent(channelKey(line), k -> new Lane());
+        final Slot<T> slot = new Slot<>(line, System.nanoTime());
+        lane.add(slot);
+        workers.execute(() -> run(lane, slot));
+    }
+
+    void shutdown() {
+        workers.shutdown();
+    }
+
+    private void run(Lane lane, Slot<T> slot) {
+        long start = System.nanoTime();
+        queueStats.record(start - slot.submitted);
+
+        T result = null;
+        try {
+            result = parser.apply(slot.line);
+        } catch (Exception e) {
+            System.err.println("Error in parsing the incomming Irc Message");
+            e.printStackTrace();
+        }
+
+        long parsed = System.nanoTime();
+        parseStats.record(parsed - start);
+        lane.complete(slot, result, parsed);
+    }
+
+    /**
+     * Extracts the channel a line is targeted at, without parsing it. Lines which are not targeted at a
+     * channel (for example whispers) all share the lane with the empty key.
+     */
+    static String channelKey(String line) {
+        /* Lines are formated like this, where tags and prefix are optional:
+         *
+         * @tags :prefix COMMAND #channel :content
+         */
+        int i = 0;
+        if (line.startsWith("@")) {
+            i = line.indexOf(' ') + 1;
+            if (i == 0) {
+                return "";
+            }
+        }
+        if (line.startsWith(":", i)) {
+            i = line.indexOf(' ', i) + 1;
+            if (i == 0) {
+                return "";
+            }
+        }
+        int commandEnd = line.indexOf(' ', i);
+        if (commandEnd == -1 || commandEnd + 1 >= line.length() || line.charAt(commandEnd + 1) != '#') {
+            return "";
+        }
+        int targetEnd = line.indexOf(' ', commandEnd + 1);
+        return line.substring(commandEnd + 1, targetEnd == -1 ? line.length() : targetEnd);
+    }
+
+    /**
+     * The lines of one channel, in the order they arrived. Only one thread at a time dispatches from a lane.
+     */
+    private class Lane {
+
+        private final ArrayDeque<Slot<T>> slots = new ArrayDeque<>();
+        private boolean dispatching = false;
+
+        private synchronized void add(Slot<T> slot) {
+            slots.add(slot);
+        }
+
+        private void complete(Slot<T> slot, T result, long parsed) {
+            synchronized (this) {
+                slot.result = result;
+                slot.parsed = parsed;
+                slot.done = true;
+            }
+
+            //Whoever completes the line at the head of the lane dispatches it, and all completed lines after it.
+            //If another thread is dispatching already, it will pick up this line once it gets to it
+            while (true) {
+                Slot<T> next;
+                synchronized (this) {
+                    next = slots.peek();
+                    if (dispatching || next == null || !next.done) {
+                        return;
+                    }
+                    slots.poll();
+                    dispatching = true;
+                }
+
+                try {
+                    if (next.result != null) {
+                        long start = System.nanoTime();
+                        reorderStats.record(start - next.parsed);
+                        dispatcher.accept(next.result);
+                        dispatchStats.record(System.nanoTime() - start);
+                    }
+                } catch (Exception e) {
+                    System.err.println("Error in handling the incomming Irc Message");
+                    e.printStackTrace();
+                } finally {
+                    synchronized (this) {
+                        dispatching = false;
+                    }
+                }
+            }
+        }
+
+    }
+
+    private static class Slot<T> {
+
+        private final String line;
+        private final long submitted;
+        private T result;
+        private long parsed;
+        private boolean done = false;
+
+        private Slot(String line, long submitted) {
+            this.line = line;
+            this.submitted = submitted;
+        }
+
+    }
+
+}
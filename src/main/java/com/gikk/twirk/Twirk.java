@@ -23,6 +23,7 @@ import com.gikk.twirk.types.users.UserstateBuilder;
 
 import java.io.*;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
@@ -75,6 +76,9 @@ public final class Twirk {
     private final UsernoticeBuilder usernoticeBuilder;
     private final ReconnectBuilder reconnectBuilder;
     private final SocketFactory socketFactory;
+    private final ParseStage<Incoming> parseStage;
+    private final LatencyStats parseStats = new LatencyStats();
+    private final LatencyStats dispatchStats = new LatencyStats();
     private Socket socket;
     private OutputThread outThread;
     private InputThread inThread;
@@ -106,6 +110,9 @@ public final class Twirk {
         this.reconnectBuilder = builder.getReconnectBuilder();
 
         this.socketFactory = builder.getSocketFactory();
+        this.parseStage = builder.parseParallelism > 0
+                ? new ParseStage<>(builder.parseParallelism, this::parse, this::dispatch, parseStats, dispatchStats)
+                : null;
 
         this.queue = new OutputQueue();
 
@@ -176,6 +183,74 @@ public final class Twirk {
         queue.addFirst("PRIVMSG " + channel + " :" + message);
     }
 
+    /**
+     * Enqueues a message that will be sent to the channel after the given delay. The delay is a lower bound,
+     * once due the message is added to the end of the message queue.<br>
+     * No thread is blocked while waiting.
+     *
+     * @param message     The message that should be sent
+     * @param delayMillis How long to wait before sending the message, in milliseconds
+     */
+    public void channelMessage(String message, long delayMillis) {
+        channelMessage(message, System.currentTimeMillis() + delayMillis, 0);
+    }
+
+    /**
+     * Enqueues a message that will be sent to the channel no earlier than {@code notBefore}.
+     * If a deadline is given and the message could not be sent until then, for example because the message queue
+     * is congested, the message is dropped.
+     *
+     * @param message   The message that should be sent
+     * @param notBefore The earliest time to send the message at, in milliseconds since the epoch
+     * @param deadline  The latest time to send the message at, in milliseconds since the epoch, or {@code 0} for no deadline
+     */
+    public void channelMessage(String message, long notBefore, long deadline) {
+        queue.addDelayed("PRIVMSG " + channel + " :" + message, notBefore, deadline);
+    }
+
+    /**
+     * Enqueues a whisper that will be sent after the given delay. See {@link #channelMessage(String, long)}
+     *
+     * @param userName    The name of the user that should receive the message.
+     * @param message     The message to whisper
+     * @param delayMillis How long to wait before sending the message, in milliseconds
+     */
+    public void whisper(String userName, String message, long delayMillis) {
+        queue.addDelayed("PRIVMSG " + channel + " :/w " + userName + " " + message, System.currentTimeMillis() + delayMillis, 0);
+    }
+
+    /**
+     * Retrieves the number of delayed messages that were dropped because they could not be sent before their deadline.
+     *
+     * @return The number of dropped messages
+     */
+    public long getDroppedMessageCount() {
+        return queue.getDroppedCount();
+    }
+
+    /**
+     * Retrieves the time incoming lines spent in each stage of being handled, keyed by stage name:<ul>
+     * <li>queue - waiting for a parse worker (only if parsing runs in parallel, see {@link TwirkBuilder#setParseParallelism(int)})
+     * <li>parse - parsing the line into a message and its event object
+     * <li>reorder - waiting for earlier lines of the same channel to be dispatched (only if parsing runs in parallel)
+     * <li>dispatch - calling the listeners
+     * </ul>
+     *
+     * @return The statistics of each stage, in the order a line passes through them
+     */
+    public Map<String, LatencyStats> getStageStats() {
+        Map<String, LatencyStats> stats = new LinkedHashMap<>();
+        if (parseStage != null) {
+            stats.put("queue", parseStage.queueStats);
+        }
+        stats.put("parse", parseStats);
+        if (parseStage != null) {
+            stats.put("reorder", parseStage.reorderStats);
+        }
+        stats.put("dispatch", dispatchStats);
+        return stats;
+    }
+
     /**
      * Check if this Twirk instance is currently connected to Twitch. If we are not, and we are not
      * {@link #isDisposed()}, then we may try to reconenct. See {@link #connect()}
@@ -309,9 +384,9 @@ public final class Twirk {
             //Start the output thread
             outThread.start();
 
-            //Add capacities to the bot and wait for them to take effect
+            //Add capacities to the bot and wait until the server answered all requests
             addCapacies();
-            Thread.sleep(1000);
+            awaitCapacities(3);
 
             //Start the input thread
             inThread.start();
@@ -371,6 +446,9 @@ public final class Twirk {
 
         isConnected = false;
         isDisposed = true;
+        if (parseStage != null) {
+            parseStage.shutdown();
+        }
 
         System.out.println("\n\tDisposing of IRC...");
         releaseResources();
@@ -454,6 +532,34 @@ public final class Twirk {
         serverMessage("CAP REQ :twitch.tv/tags");
     }
 
+    /**
+     * Reads lines from the server until it has acknowledged or rejected the given number of capacity requests.
+     * Any other line received in the meantime is handled as usual. Gives up after 10 seconds.
+     *
+     * @param requested the number of capacity requests that were sent
+     * @throws IOException In case the BufferedReader throws an error
+     */
+    private void awaitCapacities(int requested) throws IOException {
+        final int oldTimeout = socket.getSoTimeout();
+        socket.setSoTimeout(10 * 1000);
+        try {
+            int answered = 0;
+            String line;
+            while (answered < requested && (line = reader.readLine()) != null) {
+                if (line.contains(" CAP * ACK ") || line.contains(" CAP * NAK ")) {
+                    if (verboseMode) System.out.println("IN  " + line);
+                    answered++;
+                } else {
+                    incommingMessage(line);
+                }
+            }
+        } catch (SocketTimeoutException e) {
+            System.err.println("\tWarning. Server did not answer all capacity requests");
+        } finally {
+            socket.setSoTimeout(oldTimeout);
+        }
+    }
+
     /**
      * Tells the OutputThread how long we should wait, at minimum, in between
      * each message sent to Twitch.
@@ -477,6 +583,63 @@ public final class Twirk {
             return;
         }
 
+        if (parseStage != null) {
+            parseStage.submit(line);
+            return;
+        }
+
+        long start = System.nanoTime();
+        Incoming in = parse(line);
+        long parsed = System.nanoTime();
+        parseStats.record(parsed - start);
+        dispatch(in);
+        dispatchStats.record(System.nanoTime() - parsed);
+    }
+
+    /**
+     * Parses a line into the message and the event object its listeners receive.
+     * The builders are stateless, so this does not need any lock.
+     */
+    private Incoming parse(String line) {
+        TwitchMessage message = twitchMessageBuilder.build(line);
+        Object event = null;
+        TwitchUser user = null;
+        switch (message.getCommand()) {
+            case "MODE":
+                event = modeBuilder.build(message);
+                break;
+            case "CLEARCHAT":
+                event = clearChatBuilder.build(message);
+                break;
+            case "PRIVMSG":
+            case "WHISPER":
+                // built here, so listeners do not build it under the listener lock
+                message.setUser(twitchUserBuilder.build(message));
+                break;
+            case "NOTICE":
+                event = noticeBuilder.build(message);
+                break;
+            case "USERSTATE":
+                event = userstateBuilder.build(message);
+                break;
+            case "USERNOTICE":
+                user = twitchUserBuilder.build(message);
+                event = usernoticeBuilder.build(message);
+                break;
+            case "ROOMSTATE":
+                event = roomstateBuilder.build(message);
+                break;
+            case "HOSTTARGET":
+                event = hostTargetBuilder.build(message);
+                break;
+        }
+        return new Incoming(line, message, event, user);
+    }
+
+    private void dispatch(Incoming in) {
+        final String line = in.line;
+        final TwitchMessage message = in.message;
+
         //Call all the appropriate listeners for the given message.
         synchronized (listeners) {
             //First, we call all onAnything messages
@@ -484,8 +647,6 @@ public final class Twirk {
                 l.onAnything(line);
             }
 
-            TwitchMessage message = twitchMessageBuilder.build(line);
-
             //This message is a reply for a capacity request. Just ignore it
             String s = message.getCommand();
             switch (s) {
@@ -497,7 +658,7 @@ public final class Twirk {
                     break;
                 }
                 case "MODE": {
-                    Mode mode = modeBuilder.build(message);
+                    Mode mode = (Mode) in.event;
                     for (TwirkListener l : listeners) {
                         l.onMode(mode);
                     }
@@ -511,57 +672,54 @@ public final class Twirk {
                     break;
                 }
                 case "CLEARCHAT": {
-                    ClearChat clearChat = clearChatBuilder.build(message);
+                    ClearChat clearChat = (ClearChat) in.event;
                     for (TwirkListener l : listeners) {
                         l.onClearChat(clearChat);
                     }
                     break;
                 }
                 case "PRIVMSG": {
-                    message.setUserBuilder(twitchUserBuilder);
                     for (TwirkListener l : listeners) {
                         l.onPrivMsg(message);
                     }
                     break;
                 }
                 case "WHISPER": {
-                    message.setUserBuilder(twitchUserBuilder);
                     for (TwirkListener l : listeners) {
                         l.onWhisper(message);
                     }
                     break;
                 }
                 case "NOTICE": {
-                    Notice notice = noticeBuilder.build(message);
+                    Notice notice = (Notice) in.event;
                     for (TwirkListener l : listeners) {
                         l.onNotice(notice);
                     }
                     break;
                 }
                 case "USERSTATE": {
-                    Userstate userstate = userstateBuilder.build(message);
+                    Userstate userstate = (Userstate) in.event;
                     for (TwirkListener l : listeners) {
                         l.onUserstate(userstate);
                     }
                     break;
                 }
                 case "USERNOTICE": {
-                    TwitchUser user = twitchUserBuilder.build(message);
-                    Usernotice usernotice = usernoticeBuilder.build(message);
+                    Usernotice usernotice = (Usernotice) in.event;
                     for (TwirkListener l : listeners) {
-                        l.onUsernotice(user, usernotice);
+                        l.onUsernotice(in.user, usernotice);
                     }
                     break;
                 }
                 case "ROOMSTATE": {
-                    Roomstate roomstate = roomstateBuilder.build(message);
+                    Roomstate roomstate = (Roomstate) in.event;
                     for (TwirkListener l : listeners) {
                         l.onRoomstate(roomstate);
                     }
                     break;
                 }
                 case "HOSTTARGET": {
-                    HostTarget hostTarget = hostTargetBuilder.build(message);
+                    HostTarget hostTarget = (HostTarget) in.event;
                     for (TwirkListener l : listeners) {
                         l.onHost(hostTarget);
                     }
@@ -604,4 +762,23 @@ public final class Twirk {
         return prefix.substring(prefix.charAt(0) == ':' ? 1 : 0, prefix.indexOf('!'));
     }
 
+    /**
+     * A parsed line, together with the event object built for its listeners, if any.
+     */
+    private static class Incoming {
+
+        private final String line;
+        private final TwitchMessage message;
+        private final Object event;
+        private final TwitchUser user;
+
+        private Incoming(String line, TwitchMessage message, Object event, TwitchUser user) {
+            this.line = line;
+            this.message = message;
+            this.event = event;
+            this.user = user;
+        }
+
+    }
+
 }
@@ -24,7 +24,11 @@ import java.util.function.Supplier;
  * <p>
  * If you want to change any setting except the required once, use one of the
  * setter methods related to this object. When all settings are performed, use the
- * {@link #build()} method.
+ * {@link #build()} method.<br><br>
+ * <p>
+ * Custom builders assigned through the set*Builder methods might be called from several threads at once,
+ * and the same builder can be shared between several {@link Twirk} instances. They must therefore not keep
+ * any state between calls. The default builders fill in a new instance for every message they parse.
  *
  * @author Gikkman
  */
@@ -43,6 +47,7 @@ public class TwirkBuilder {
     String oauth = "";
     String channel = "";
     String ownerName = "";
+    int parseParallelism = 0;
 
     private ClearChatBuilder clearChatBuilder;
     private HostTargetBuilder hostTargetBuilder;
@@ -133,6 +138,25 @@ public class TwirkBuilder {
         return this;
     }
 
+    /**
+     * Sets how many worker threads parse incoming lines. Default is {@code 0}, which parses every line on the
+     * thread reading from the socket.<br><br>
+     * <p>
+     * With one or more workers, lines are parsed in parallel, but listener callbacks for the lines of a channel
+     * still happen in the order the lines arrived. Callbacks are never made concurrently, so listeners do not
+     * need to be thread-safe. This is worth it when a single connection receives more lines than one thread can parse.
+     *
+     * @param parallelism The number of parse threads, or {@code 0} to parse on the reading thread
+     * @return this
+     */
+    public TwirkBuilder setParseParallelism(int parallelism) {
+        if (parallelism < 0) {
+            throw new IllegalArgumentException("parallelism must not be negative");
+        }
+        this.parseParallelism = parallelism;
+        return this;
+    }
+
     /**
      * Retrieves the assigned {@link ClearChatBuilder}, or the default one, if none is assigned.
      *
@@ -9,13 +9,26 @@ public class CheerImpl implements Cheer {
 
     private final static String ROOT_URL = "static-cdn.jtvnw.net/bits/<theme>/<type>/<color>/<size>";
     private final int bits;
-    private final String message;
+    private final String content;
+    private final int begin, end;
+    private String message;
 
     public CheerImpl(int bits, String message) {
-        this.bits = bits;
+        this(bits, message, 0, message.length());
         this.message = message;
     }
 
+    /**
+     * Creates a cheer that refers to a part of the message content, the cheer's text is only
+     * cut from the content when it is requested for the first time.
+     */
+    CheerImpl(int bits, String content, int begin, int end) {
+        this.bits = bits;
+        this.content = content;
+        this.begin = begin;
+        this.end = end;
+    }
+
     @Override
     public int getBits() {
         return bits;
@@ -23,7 +36,11 @@ public class CheerImpl implements Cheer {
 
     @Override
     public String getMessage() {
-        return message;
+        String ret = message;
+        if (ret == null) {
+            message = ret = content.substring(begin, end);
+        }
+        return ret;
     }
 
     @Override
@@ -32,14 +49,14 @@ public class CheerImpl implements Cheer {
             return false;
         }
         Cheer other = (Cheer) obj;
-        return bits == other.getBits() && message.equals(other.getMessage());
+        return bits == other.getBits() && getMessage().equals(other.getMessage());
     }
 
     @Override
     public int hashCode() {
         int hash = 5;
         hash = 17 * hash + this.bits;
-        hash = 17 * hash + Objects.hashCode(this.message);
+        hash = 17 * hash + Objects.hashCode(getMessage());
         return hash;
     }
 
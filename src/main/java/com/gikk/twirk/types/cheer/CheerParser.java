@@ -4,36 +4,75 @@ import com.gikk.twirk.types.TagMap;
 import com.gikk.twirk.types.TwitchTags;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * @author Gikkman
  */
 public class CheerParser {
 
-    private static final Pattern PATTERN
-            = Pattern.compile("([a-zA-Z]+([1-9][0-9]+\\b(?<=\\w)))");
-
+    /**
+     * Finds the cheers in a message's content. A cheer is a run of letters directly followed by
+     * the amount, which has at least two digits, does not start with a 0 and ends at a word boundary.
+     * Cheers are collected until they add up to the bits sent with the message.
+     *
+     * @param tagMap  The message's tags
+     * @param content The message's content
+     * @return The cheers found in the content
+     */
     public static List<Cheer> parseCheer(TagMap tagMap, String content) {
-        List<Cheer> list = new ArrayList<>();
-
         int bits = tagMap.getAsInt(TwitchTags.BITS);
         if (bits == -1) {
-            return list;
+            return Collections.emptyList();
         }
 
-        Matcher matcher = PATTERN.matcher(content);
+        List<Cheer> list = new ArrayList<>(2);
         int bitsFound = 0;
-        while (matcher.find() && bitsFound < bits) {
-            int bit = Integer.parseInt(matcher.group(2));
+        int pos = 0;
+        final int length = content.length();
+        while (pos < length && bitsFound < bits) {
+            if (!isLetter(content.charAt(pos))) {
+                pos++;
+                continue;
+            }
+
+            int begin = pos;
+            while (pos < length && isLetter(content.charAt(pos))) {
+                pos++;
+            }
+            int digits = pos;
+            while (pos < length && isDigit(content.charAt(pos))) {
+                pos++;
+            }
+
+            // the amount must be followed by a non-word character or the end of the content
+            if (pos - digits < 2 || content.charAt(digits) == '0' || pos - digits > 9
+                    || (pos < length && isWordChar(content.charAt(pos)))) {
+                continue;
+            }
+
+            int bit = 0;
+            for (int i = digits; i < pos; i++) {
+                bit = bit * 10 + (content.charAt(i) - '0');
+            }
             bitsFound += bit;
-            Cheer cheer = new CheerImpl(bit, matcher.group(1));
-            list.add(cheer);
+            list.add(new CheerImpl(bit, content, begin, pos));
         }
 
         return list;
     }
 
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWordChar(char c) {
+        return isLetter(c) || isDigit(c) || c == '_';
+    }
+
 }
@@ -15,6 +15,10 @@ class DefaultClearChatBuilder implements ClearChatBuilder {
 
     @Override
     public ClearChat build(TwitchMessage twitchMessage) {
+        return new DefaultClearChatBuilder().parse(twitchMessage);
+    }
+
+    private ClearChat parse(TwitchMessage twitchMessage) {
         this.rawLine = twitchMessage.getRaw();
 
         if (twitchMessage.getContent().isEmpty()) {
@@ -41,6 +41,38 @@ public interface Emote {
      */
     public LinkedList<EmoteIndices> getIndices();
 
+    /**
+     * Fetches how many times this emote occurs in the message.<br><br>
+     * <p>
+     * Together with {@link #getBegin(int)} and {@link #getEnd(int)} this gives access to the same
+     * data as {@link #getIndices()}, without creating a list of index objects.
+     *
+     * @return The number of occurrences of this emote
+     */
+    public default int getOccurrences() {
+        return getIndices().size();
+    }
+
+    /**
+     * Fetches the begin index (inclusive) of the given occurrence of this emote.
+     *
+     * @param occurrence The occurrence, between 0 and {@link #getOccurrences()} (exclusive)
+     * @return The index where the occurrence begins
+     */
+    public default int getBegin(int occurrence) {
+        return getIndices().get(occurrence).beingIndex;
+    }
+
+    /**
+     * Fetches the end index (exclusive) of the given occurrence of this emote.
+     *
+     * @param occurrence The occurrence, between 0 and {@link #getOccurrences()} (exclusive)
+     * @return The index where the occurrence ends
+     */
+    public default int getEnd(int occurrence) {
+        return getIndices().get(occurrence).endIndex;
+    }
+
     /**
      * The emote's pattern. For example: 'Kappa'
      *
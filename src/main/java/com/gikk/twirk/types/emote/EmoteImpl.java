@@ -2,18 +2,45 @@ package com.gikk.twirk.types.emote;
 
 import com.gikk.twirk.enums.EMOTE_SIZE;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 
 
 class EmoteImpl implements Emote {
 
     private final static String EMOTE_URL_BASE = "http://static-cdn.jtvnw.net/emoticons/v1/";
-    private final LinkedList<EmoteIndices> indices = new LinkedList<>();
+    private final String content;
+    private int[] ranges = new int[2];
+    private int size = 0;
     private int emoteID;
     private String pattern;
+    private LinkedList<EmoteIndices> indices;
+
+    EmoteImpl() {
+        this(null);
+    }
+
+    /**
+     * Creates an emote that refers to the given message content. The pattern is only cut from
+     * the content when it is requested for the first time.
+     */
+    EmoteImpl(String content) {
+        this.content = content;
+    }
 
     public EmoteImpl addIndices(int begin, int end) {
-        this.indices.add(new EmoteIndices(begin, end));
+        if (size + 2 > ranges.length) ranges = Arrays.copyOf(ranges, ranges.length * 2);
+        ranges[size++] = begin;
+        ranges[size++] = end;
+        indices = null;
+        return this;
+    }
+
+    /**
+     * Trims the backing array once all indices have been added.
+     */
+    EmoteImpl compact() {
+        if (size != ranges.length) ranges = Arrays.copyOf(ranges, size);
         return this;
     }
 
@@ -29,6 +56,10 @@ class EmoteImpl implements Emote {
 
     @Override
     public String getPattern() {
+        if (pattern == null && content != null && size >= 2) {
+            final int begin = Math.min(ranges[0], content.length());
+            pattern = content.substring(begin, Math.max(begin, Math.min(ranges[1], content.length())));
+        }
         return pattern;
     }
 
@@ -39,9 +70,29 @@ class EmoteImpl implements Emote {
 
     @Override
     public LinkedList<EmoteIndices> getIndices() {
-        return indices;
+        LinkedList<EmoteIndices> ret = indices;
+        if (ret == null) {
+            ret = new LinkedList<>();
+            for (int i = 0; i < size; i += 2) ret.add(new EmoteIndices(ranges[i], ranges[i + 1]));
+            indices = ret;
+        }
+        return ret;
     }
 
+    @Override
+    public int getOccurrences() {
+        return size / 2;
+    }
+
+    @Override
+    public int getBegin(int occurrence) {
+        return ranges[occurrence * 2];
+    }
+
+    @Override
+    public int getEnd(int occurrence) {
+        return ranges[occurrence * 2 + 1];
+    }
 
     @Override
     public String getEmoteImageUrl(EMOTE_SIZE imageSize) {
@@ -51,10 +102,11 @@ class EmoteImpl implements Emote {
 
     @Override
     public String toString() {
+        final String pattern = getPattern();
         StringBuilder out = new StringBuilder(emoteID + " " + (pattern == null ? "NULL" : pattern) + "[ ");
 
-        for (EmoteIndices index : indices) {
-            out.append(index.toString());
+        for (int i = 0; i < size; i += 2) {
+            out.append('(').append(ranges[i]).append(',').append(ranges[i + 1]).append(')');
         }
         out.append(" ]");
 
@@ -1,6 +1,7 @@
 package com.gikk.twirk.types.emote;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class EmoteParser {
@@ -20,71 +21,79 @@ public class EmoteParser {
          * Then, check that the message actually contains an emotes section and that
          * the emote section actually contains data.
          */
-        List<Emote> emotes = new LinkedList<>();
-
         int begin = tag.indexOf(EMOTES_IDENTIFIER);
+        if (begin == -1) {
+            return Collections.emptyList();
+        }
+        begin += EMOTES_IDENTIFIER.length();
         int end = tag.indexOf(';', begin);
-        if (begin == -1 || begin + EMOTES_IDENTIFIER.length() == end) {
-            return emotes;
+        if (end == -1) {
+            end = tag.length();
+        }
+        if (begin == end) {
+            return Collections.emptyList();
         }
 
-        /* This segment is a head ache, but here is a basic idea of what it is doing:
-         * Iterate through the emotes-section.
-         *    The first part will be the emote ID. it is terminated by a :
-         *    The second part is the emote's start index. It is terminated by a -
-         *    The third part is the emote's end index. It is terminated EITHER by a / or a , or by the segment ending
-         *       If terminated by a , the emote is present more than once in the message. So the next part will be a new begin index
-         *       If terminated by a / there is another emote in the message. The next part is a new emote ID
-         *       If terminated by the segment ending we simply finish the last begin-end pair and we are done
+        /* The section is scanned in place, without copying it or any of its parts:
+         *    The first part is the emote ID. It is terminated by a :
+         *    Then follow begin-end pairs, separated by a -. Pairs are separated by a ,
+         *    A / terminates the emote, and the next part is a new emote ID
+         * Twitch sends inclusive end indices, they are stored exclusive. An emote that is
+         * not made up of numbers as expected is skipped, up to the next /
          */
-        String emotesString = tag.substring(begin + EMOTES_IDENTIFIER.length(), end);
-
-        EmoteImpl emote = new EmoteImpl();
-        StringBuilder str = new StringBuilder();
-        String emoteID = "", beginIndex = "";
-        for (char c : emotesString.toCharArray()) {
-            switch (c) {
-                case ':':
-                    emoteID = str.toString();
-                    str.setLength(0);
-                    break;
-                case '-':
-                    beginIndex = str.toString();
-                    str.setLength(0);
-                    break;
-                case ',':
-                    addIndices(emote, beginIndex, str.toString());
-                    str.setLength(0);
-                    break;
-                case '/':
-                    finalizeEmote(content, emotes, emote, emoteID, beginIndex, str.toString());
-                    emote = new EmoteImpl();
-                    str.setLength(0);
-                    break;
-                default:
-                    str.append(c);
+        List<Emote> emotes = new ArrayList<>(4);
+        int pos = begin;
+        while (pos < end) {
+            int idEnd = digits(tag, pos, end);
+            if (idEnd > pos && idEnd < end && tag.charAt(idEnd) == ':') {
+                EmoteImpl emote = new EmoteImpl(content).setEmoteID(number(tag, pos, idEnd));
+                pos = idEnd + 1;
+                while (pos < end) {
+                    int firstEnd = digits(tag, pos, end);
+                    if (firstEnd == pos || firstEnd >= end || tag.charAt(firstEnd) != '-') {
+                        break;
+                    }
+                    int lastEnd = digits(tag, firstEnd + 1, end);
+                    if (lastEnd == firstEnd + 1) {
+                        break;
+                    }
+                    emote.addIndices(number(tag, pos, firstEnd), number(tag, firstEnd + 1, lastEnd) + 1);
+                    pos = lastEnd;
+                    if (pos < end && tag.charAt(pos) == ',') {
+                        pos++;
+                    } else {
+                        break;
+                    }
+                }
+                if (emote.getOccurrences() > 0) {
+                    emotes.add(emote.compact());
+                }
             }
+            int next = tag.indexOf('/', pos);
+            pos = next == -1 || next > end ? end : next + 1;
         }
-        //The emotes segment ended, so we finish the current emote's begin-end pair, then we're done
-        finalizeEmote(content, emotes, emote, emoteID, beginIndex, str.toString());
 
         return emotes;
     }
 
-    private static void finalizeEmote(String content, List<Emote> emotes, EmoteImpl emote, String emoteID, String beginIndex, String endIndex) {
-        int begin = Integer.parseInt(beginIndex);
-        int end = Integer.parseInt(endIndex) + 1;    //The end index we receive from Twitch is inclusive, but Java is almost always exclusive
-        emote.addIndices(begin, end);
-
-        emote.setEmoteID(Integer.parseInt(emoteID));
-        emote.setPattern(content.substring(begin, end));
-        emotes.add(emote);
+    /**
+     * Returns the end of the run of digits starting at the given index. Runs that are too long
+     * to fit an int are not accepted, in that case the start index is returned.
+     */
+    private static int digits(String str, int from, int to) {
+        int i = from;
+        while (i < to && str.charAt(i) >= '0' && str.charAt(i) <= '9') {
+            i++;
+        }
+        return i - from > 9 ? from : i;
     }
 
-    private static void addIndices(EmoteImpl emote, String beginIndex, String endIndex) {
-        int begin = Integer.parseInt(beginIndex);
-        int end = Integer.parseInt(endIndex) + 1;
-        emote.addIndices(begin, end);
+    private static int number(String str, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            value = value * 10 + (str.charAt(i) - '0');
+        }
+        return value;
     }
 
 }
@@ -12,6 +12,10 @@ class DefaultHostTargetBuilder implements HostTargetBuilder {
 
     @Override
     public HostTarget build(TwitchMessage message) {
+        return new DefaultHostTargetBuilder().parse(message);
+    }
+
+    private HostTarget parse(TwitchMessage message) {
         this.rawLine = message.getRaw();
         this.mode = message.getContent().startsWith("-") ? HOSTTARGET_MODE.STOP : HOSTTARGET_MODE.START;
 
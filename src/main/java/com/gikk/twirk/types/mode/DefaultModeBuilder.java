@@ -11,6 +11,10 @@ class DefaultModeBuilder implements ModeBuilder {
 
     @Override
     public Mode build(TwitchMessage message) {
+        return new DefaultModeBuilder().parse(message);
+    }
+
+    private Mode parse(TwitchMessage message) {
         /* Mode events can have two different layouts:
          *
          * 	> :jtv MODE #channel +o operator_user		- Gained Mod
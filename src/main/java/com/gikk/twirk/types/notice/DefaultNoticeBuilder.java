@@ -15,6 +15,10 @@ public class DefaultNoticeBuilder implements NoticeBuilder {
 
     @Override
     public Notice build(TwitchMessage message) {
+        return new DefaultNoticeBuilder().parse(message);
+    }
+
+    private Notice parse(TwitchMessage message) {
         TagMap r = message.getTagMap();
         this.rawEvent = r.getAsString(TwitchTags.MESSAGE_ID);
         this.event = NOTICE_EVENT.of(rawEvent);
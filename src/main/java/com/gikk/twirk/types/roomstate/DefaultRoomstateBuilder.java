@@ -14,6 +14,10 @@ class DefaultRoomstateBuilder implements RoomstateBuilder {
 
     @Override
     public Roomstate build(TwitchMessage message) {
+        return new DefaultRoomstateBuilder().parse(message);
+    }
+
+    private Roomstate parse(TwitchMessage message) {
         this.rawLine = message.getRaw();
         TagMap r = message.getTagMap();
 
@@ -25,6 +25,13 @@ class DefaultTwitchMessageBuilder implements TwitchMessageBuilder {
     //***********************************************************
     @Override
     public TwitchMessage build(String chatLine) {
+        return new DefaultTwitchMessageBuilder().parse(chatLine);
+    }
+
+    //***********************************************************
+    // 				PRIVATE
+    //***********************************************************
+    private TwitchMessage parse(String chatLine) {
         if (chatLine.startsWith("@")) {
             parseWithTag(chatLine);
         } else {
@@ -42,9 +49,6 @@ class DefaultTwitchMessageBuilder implements TwitchMessageBuilder {
 
     }
 
-    //***********************************************************
-    // 				PRIVATE
-    //***********************************************************
     private void parseWithTag(String line) {
         String[] parts = line.split(" ", 5);
 
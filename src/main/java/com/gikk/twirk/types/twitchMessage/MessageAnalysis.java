@@ -0,0 +1,228 @@
+package com.gikk.twirk.types.twitchMessage;
+
+import com.gikk.twirk.types.emote.Emote;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Derived views of a message's content, shared by everything that processes the message.<br><br>
+ * <p>
+ * Each view is computed the first time it is requested and then kept, so that listeners and commands
+ * handling the same message do not repeat the same transformations. Instances are obtained through
+ * {@link TwitchMessage#getAnalysis()}.<br><br>
+ * <p>
+ * Spans are stored as pairs of indices into the content, where the start index is inclusive and the
+ * end index exclusive.
+ */
+public class MessageAnalysis {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final String content;
+    private final List<Emote> emotes;
+
+    private volatile String lowerCase;
+    private volatile String trimmed;
+    private volatile int[] tokens;
+    private volatile int[] urls;
+    private volatile int[] emoteSpans;
+
+    public MessageAnalysis(String content, List<Emote> emotes) {
+        this.content = content;
+        this.emotes = emotes;
+    }
+
+    /**
+     * Retrieves the content this analysis was created for.
+     *
+     * @return The message's content
+     */
+    public String getContent() {
+        return content;
+    }
+
+    /**
+     * Retrieves the content converted to lower case, using the default locale just like
+     * {@link String#toLowerCase()}. Note that its indices might not line up with the content
+     * if the conversion changed the length of some characters.
+     *
+     * @return The lower case content
+     */
+    public String getLowerCase() {
+        String ret = lowerCase;
+        if (ret == null) lowerCase = ret = content.toLowerCase(Locale.getDefault());
+        return ret;
+    }
+
+    /**
+     * Retrieves the content without leading and trailing whitespace, as returned by {@link String#trim()}.
+     *
+     * @return The trimmed content
+     */
+    public String getTrimmed() {
+        String ret = trimmed;
+        if (ret == null) trimmed = ret = content.trim();
+        return ret;
+    }
+
+    /**
+     * Retrieves the number of tokens in the content. Tokens are separated by whitespace, as determined by
+     * {@link Character#isWhitespace(char)}.
+     *
+     * @return The number of tokens
+     */
+    public int getTokenCount() {
+        return tokens().length / 2;
+    }
+
+    public int getTokenStart(int token) {
+        return tokens()[token * 2];
+    }
+
+    public int getTokenEnd(int token) {
+        return tokens()[token * 2 + 1];
+    }
+
+    /**
+     * Retrieves the given token as a string.
+     *
+     * @param token The index of the token
+     * @return The token
+     */
+    public String getToken(int token) {
+        final int[] tokens = tokens();
+        return content.substring(tokens[token * 2], tokens[token * 2 + 1]);
+    }
+
+    /**
+     * Retrieves the number of links in the content. Tokens starting with {@code http://}, {@code https://}
+     * or {@code www.} are considered links.
+     *
+     * @return The number of links
+     */
+    public int getUrlCount() {
+        return urls().length / 2;
+    }
+
+    public int getUrlStart(int url) {
+        return urls()[url * 2];
+    }
+
+    public int getUrlEnd(int url) {
+        return urls()[url * 2 + 1];
+    }
+
+    /**
+     * Tells whether the content contains at least one link.
+     *
+     * @return {@code true} if there is a link in the content
+     */
+    public boolean hasUrls() {
+        return urls().length > 0;
+    }
+
+    /**
+     * Retrieves the number of emote occurrences in the content. Unlike {@link TwitchMessage#getEmotes()},
+     * every occurrence is counted separately.
+     *
+     * @return The number of emote occurrences
+     */
+    public int getEmoteCount() {
+        return emoteSpans().length / 2;
+    }
+
+    /**
+     * Retrieves the start of the given emote occurrence. Occurrences are ordered by their position.
+     *
+     * @param emote The index of the emote occurrence
+     * @return The start index in the content, inclusive
+     */
+    public int getEmoteStart(int emote) {
+        return emoteSpans()[emote * 2];
+    }
+
+    /**
+     * Retrieves the end of the given emote occurrence.
+     *
+     * @param emote The index of the emote occurrence
+     * @return The end index in the content, exclusive
+     */
+    public int getEmoteEnd(int emote) {
+        return emoteSpans()[emote * 2 + 1];
+    }
+
+    private int[] tokens() {
+        int[] ret = tokens;
+        if (ret == null) tokens = ret = scanTokens();
+        return ret;
+    }
+
+    private int[] urls() {
+        int[] ret = urls;
+        if (ret == null) urls = ret = scanUrls();
+        return ret;
+    }
+
+    private int[] emoteSpans() {
+        int[] ret = emoteSpans;
+        if (ret == null) emoteSpans = ret = collectEmotes();
+        return ret;
+    }
+
+    private int[] scanTokens() {
+        int[] ret = new int[8];
+        int size = 0, pos = 0;
+        final int length = content.length();
+        while (true) {
+            while (pos < length && Character.isWhitespace(content.charAt(pos))) pos++;
+            if (pos >= length) break;
+            final int start = pos;
+            while (pos < length && !Character.isWhitespace(content.charAt(pos))) pos++;
+            if (size + 2 > ret.length) ret = Arrays.copyOf(ret, ret.length * 2);
+            ret[size++] = start;
+            ret[size++] = pos;
+        }
+        return size == 0 ? EMPTY : Arrays.copyOf(ret, size);
+    }
+
+    private int[] scanUrls() {
+        final int[] tokens = tokens();
+        int[] ret = EMPTY;
+        int size = 0;
+        for (int i = 0; i < tokens.length; i += 2) {
+            final int start = tokens[i];
+            if (content.regionMatches(true, start, "http://", 0, 7)
+                    || content.regionMatches(true, start, "https://", 0, 8)
+                    || content.regionMatches(true, start, "www.", 0, 4)) {
+                if (size + 2 > ret.length) ret = Arrays.copyOf(ret, Math.max(4, ret.length * 2));
+                ret[size++] = start;
+                ret[size++] = tokens[i + 1];
+            }
+        }
+        return size == ret.length ? ret : Arrays.copyOf(ret, size);
+    }
+
+    private int[] collectEmotes() {
+        if (emotes == null || emotes.isEmpty()) return EMPTY;
+        int count = 0;
+        for (final Emote emote : emotes) count += emote.getOccurrences();
+        final long[] spans = new long[count];
+        int i = 0;
+        for (final Emote emote : emotes) {
+            for (int o = 0; o < emote.getOccurrences(); o++) {
+                spans[i++] = ((long) emote.getBegin(o) << 32) | (emote.getEnd(o) & 0xFFFFFFFFL);
+            }
+        }
+        // begin indices are never negative, so sorting the packed pairs sorts them by begin index
+        Arrays.sort(spans);
+        final int[] ret = new int[count * 2];
+        for (i = 0; i < count; i++) {
+            ret[i * 2] = (int) (spans[i] >>> 32);
+            ret[i * 2 + 1] = (int) spans[i];
+        }
+        return ret;
+    }
+
+}
@@ -121,6 +121,22 @@ public interface TwitchMessage extends AbstractEmoteMessage {
 
     public TwitchUser getUser();
 
+    /**
+     * Fetches the {@link MessageAnalysis} of this message's content. It is created on first access
+     * and shared by all subsequent callers, so derived views such as the lower case content or the
+     * token boundaries are only computed once per message.
+     *
+     * @return The analysis of this message's content
+     */
+    public MessageAnalysis getAnalysis();
+
     public void setUserBuilder(TwitchUserBuilder userBuilder);
 
+    /**
+     * Sets the user of this message, for callers that build it up front instead of on first access.
+     *
+     * @param user The user that sent this message
+     */
+    public void setUser(TwitchUser user);
+
 }
@@ -19,8 +19,9 @@ class TwitchMessageImpl implements TwitchMessage {
     private final List<Emote> emotes;
     private final List<Cheer> cheers;
     private final TagMap tagMap;
-    private TwitchUserBuilder userBuilder;
-    private TwitchUser user;
+    private volatile TwitchUserBuilder userBuilder;
+    private volatile TwitchUser user;
+    private volatile MessageAnalysis analysis;
 
     //***********************************************************
     // 				CONSTRUCTOR
@@ -104,7 +105,15 @@ class TwitchMessageImpl implements TwitchMessage {
 
     @Override
     public TwitchUser getUser() {
-        return user == null && userBuilder != null ? userBuilder.build(this) : user;
+        if (user == null && userBuilder != null) user = userBuilder.build(this);
+        return user;
+    }
+
+    @Override
+    public MessageAnalysis getAnalysis() {
+        MessageAnalysis ret = analysis;
+        if (ret == null) analysis = ret = new MessageAnalysis(content, emotes);
+        return ret;
     }
 
     @Override
@@ -112,6 +121,11 @@ class TwitchMessageImpl implements TwitchMessage {
         this.userBuilder = userBuilder;
     }
 
+    @Override
+    public void setUser(TwitchUser user) {
+        this.user = user;
+    }
+
     @Override
     public int getBits() {
         int bits = 0;
@@ -28,6 +28,10 @@ class DefaultUsernoticeBuilder implements UsernoticeBuilder {
 
     @Override
     public Usernotice build(TwitchMessage message) {
+        return new DefaultUsernoticeBuilder().parse(message);
+    }
+
+    private Usernotice parse(TwitchMessage message) {
         this.rawLine = message.getRaw();
         this.emotes = message.getEmotes();
 
@@ -48,15 +52,7 @@ class DefaultUsernoticeBuilder implements UsernoticeBuilder {
 
         this.message = message.getContent();
 
-        Usernotice un = new UsernoticeImpl(this);
-        clear();
-        return un;
-    }
-
-    private void clear() {
-        this.subscription = null;
-        this.raid = null;
-        this.ritual = null;
+        return new UsernoticeImpl(this);
     }
 
 }
@@ -17,6 +17,10 @@ class DefaultTwitchUserBuilder extends AbstractTwitchUserFields implements Twitc
 
     @Override
     public TwitchUser build(TwitchMessage message) {
+        return new DefaultTwitchUserBuilder(botOwner).parse(message);
+    }
+
+    private TwitchUser parse(TwitchMessage message) {
         parseUserProperties(message);
         return new TwitchUserImpl(this);
     }
@@ -17,6 +17,10 @@ class DefaultUserstateBuilder extends AbstractTwitchUserFields implements Userst
 
     @Override
     public Userstate build(TwitchMessage message) {
+        return new DefaultUserstateBuilder(botOwner).parse(message);
+    }
+
+    private Userstate parse(TwitchMessage message) {
         parseUserProperties(message);
         return new UserstateImpl(this);
     }
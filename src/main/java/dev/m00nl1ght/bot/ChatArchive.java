@@ -0,0 +1,424 @@
+package dev.m00nl1ght.bot;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Append-only archive of all received chat lines, stored in memory-mapped segment files of fixed size.
+ * Every record points back to the previous record of the same user, so the history of a user is read by
+ * following these pointers. Each segment also has a sparse time index for range queries.
+ * Only the newest record pointer per user and the sparse indices are kept in memory.
+ * Users are looked up by login name, the display name is stored for output only.
+ * The user pointers are saved to a checkpoint file on close and whenever a segment is filled,
+ * so opening the archive only scans the records appended after the last checkpoint.
+ * Sparse indices of older segments are built when a range query first needs them.
+ */
+public class ChatArchive {
+
+    static final int MAGIC = 0x43484154;
+    static final int VERSION = 2;
+    static final int CHECKPOINT_MAGIC = 0x43484b50;
+    static final int SEGMENT_SIZE = 16 * 1024 * 1024;
+    static final int HEADER_SIZE = 32;
+    static final int RECORD_HEADER = 4 + 8 + 8 + 8 + 2 + 1;
+    static final int RECORD_HEADER_V1 = 4 + 8 + 8 + 8 + 2;
+    static final int INDEX_INTERVAL = 128;
+    static final int MAX_CONTENT = 4096;
+
+    private final File directory;
+    private final List<Segment> segments = new ArrayList<>();
+    private final Map<Long, Long> heads = new HashMap<>();
+    private final Map<String, Long> users = new HashMap<>();
+    private int firstSequence = 0;
+    private boolean open = false;
+
+    public ChatArchive(File directory) {
+        this.directory = directory;
+    }
+
+    public synchronized void open() throws IOException {
+        if (open) return;
+        if (!directory.exists() && !directory.mkdirs()) throw new IOException("Failed to create " + directory);
+        final File[] files = directory.listFiles((dir, name) -> name.endsWith(".seg"));
+        if (files != null && files.length > 0) {
+            Arrays.sort(files);
+            firstSequence = sequenceOf(files[0]);
+            for (final File file : files) {
+                if (sequenceOf(file) != firstSequence + segments.size())
+                    throw new IOException("Missing archive segment before " + file);
+                segments.add(Segment.map(file, false));
+            }
+        }
+
+        long from = segments.isEmpty() ? -1L : loadCheckpoint();
+        if (from < 0) {
+            heads.clear();
+            users.clear();
+            from = pointer(firstSequence, HEADER_SIZE);
+        }
+        for (int idx = (int) (from >>> 32) - firstSequence; idx < segments.size(); idx++) {
+            final int offset = idx == (int) (from >>> 32) - firstSequence ? (int) from : HEADER_SIZE;
+            scan(segments.get(idx), idx, offset);
+        }
+
+        // records are only appended to a segment in the current format
+        if (segments.isEmpty() || segments.get(segments.size() - 1).version != VERSION) {
+            segments.add(Segment.map(segmentFile(firstSequence + segments.size()), true));
+        }
+        segments.get(segments.size() - 1).buildIndex();
+        open = true;
+    }
+
+    public synchronized void close() {
+        if (!open) return;
+        for (final Segment segment : segments) segment.buffer.force();
+        saveCheckpoint();
+        open = false;
+    }
+
+    /**
+     * Appends a chat line, the user is indexed by their login name and the display name is kept for output.
+     */
+    public synchronized void append(long time, long userId, String login, String displayName, String content) {
+        if (!open) return;
+        final byte[] nameBytes = displayName.getBytes(StandardCharsets.UTF_8);
+        final byte[] loginBytes = login.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8);
+        byte[] contentBytes = content.getBytes(StandardCharsets.UTF_8);
+        if (contentBytes.length > MAX_CONTENT) contentBytes = Arrays.copyOf(contentBytes, MAX_CONTENT);
+        final int nameLength = Math.min(nameBytes.length, Short.MAX_VALUE);
+        final int loginLength = Math.min(loginBytes.length, 255);
+        final int length = RECORD_HEADER + nameLength + loginLength + contentBytes.length;
+
+        Segment segment = segments.get(segments.size() - 1);
+        if (segment.end + length > SEGMENT_SIZE) {
+            segment.buffer.force();
+            try {
+                segment = Segment.map(segmentFile(firstSequence + segments.size()), true);
+                segment.buildIndex();
+            } catch (IOException e) {
+                Logger.error("Failed to create chat archive segment: " + e.getMessage());
+                open = false;
+                return;
+            }
+            segments.add(segment);
+            saveCheckpoint();
+        }
+
+        final MappedByteBuffer buffer = segment.buffer;
+        final int offset = segment.end;
+        final Long prev = heads.get(userId);
+        buffer.position(offset);
+        buffer.putInt(length);
+        buffer.putLong(time);
+        buffer.putLong(userId);
+        buffer.putLong(prev == null ? -1L : prev);
+        buffer.putShort((short) nameLength);
+        buffer.put((byte) loginLength);
+        buffer.put(nameBytes, 0, nameLength);
+        buffer.put(loginBytes, 0, loginLength);
+        buffer.put(contentBytes);
+
+        // the header is updated last, a record torn by a crash is simply not part of the archive
+        segment.record(offset, length, time);
+        buffer.putInt(8, segment.end);
+        buffer.putInt(12, segment.count);
+        if (segment.count == 1) buffer.putLong(16, time);
+        buffer.putLong(24, time);
+
+        heads.put(userId, pointer(firstSequence + segments.size() - 1, offset));
+        users.put(new String(loginBytes, 0, loginLength, StandardCharsets.UTF_8), userId);
+    }
+
+    /**
+     * Returns the last messages of the user with the given login name, newest first.
+     */
+    public synchronized List<Message> history(String login, int limit) {
+        final Long userId = users.get(login.toLowerCase(Locale.ROOT));
+        return userId == null ? Collections.emptyList() : history(userId, limit);
+    }
+
+    /**
+     * Returns the last messages of the given user, newest first.
+     */
+    public synchronized List<Message> history(long userId, int limit) {
+        final List<Message> result = new ArrayList<>(Math.min(limit, 64));
+        Long ptr = heads.get(userId);
+        while (ptr != null && ptr >= 0 && result.size() < limit) {
+            // pointers hold the segment sequence number, older segments may have been removed
+            final int idx = (int) (ptr >>> 32) - firstSequence;
+            if (idx < 0 || idx >= segments.size()) break;
+            final Segment segment = segments.get(idx);
+            final int offset = (int) (long) ptr;
+            result.add(segment.read(offset));
+            ptr = segment.buffer.getLong(offset + 20);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the messages within the given time range, oldest first.
+     */
+    public synchronized List<Message> range(long from, long to, int limit) {
+        final List<Message> result = new ArrayList<>();
+        for (final Segment segment : segments) {
+            if (segment.count == 0 || segment.lastTime < from) continue;
+            if (segment.firstTime > to) break;
+            try {
+                segment.buildIndex();
+            } catch (IOException e) {
+                Logger.warn("Skipping chat archive segment: " + e.getMessage());
+                continue;
+            }
+            int offset = segment.seek(from);
+            while (offset < segment.end && result.size() < limit) {
+                final long time = segment.buffer.getLong(offset + 4);
+                if (time > to) return result;
+                if (time >= from) result.add(segment.read(offset));
+                offset += segment.buffer.getInt(offset);
+            }
+            if (result.size() >= limit) break;
+        }
+        return result;
+    }
+
+    public synchronized long getMessageCount() {
+        long count = 0;
+        for (final Segment segment : segments) count += segment.count;
+        return count;
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Updates the user pointers with the records of the segment from the given offset on.
+     */
+    private void scan(Segment segment, int idx, int offset) throws IOException {
+        while (offset < segment.end) {
+            final int length = segment.checkRecord(offset);
+            final long userId = segment.buffer.getLong(offset + 12);
+            heads.put(userId, pointer(firstSequence + idx, offset));
+            users.put(segment.readLogin(offset), userId);
+            offset += length;
+        }
+    }
+
+    /**
+     * Restores the user pointers from the checkpoint file, returns the position up to which they are valid or -1.
+     */
+    private long loadCheckpoint() {
+        final File file = new File(directory, "checkpoint.bin");
+        if (!file.exists()) return -1L;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != CHECKPOINT_MAGIC) throw new IOException("invalid file");
+            final long position = in.readLong();
+            final int idx = (int) (position >>> 32) - firstSequence;
+            // the checkpoint must point into an existing segment, otherwise it is not from these segments
+            if (idx < 0 || idx >= segments.size() || (int) position < HEADER_SIZE || (int) position > segments.get(idx).end) return -1L;
+            for (int i = in.readInt(); i > 0; i--) heads.put(in.readLong(), in.readLong());
+            for (int i = in.readInt(); i > 0; i--) users.put(in.readUTF(), in.readLong());
+            return position;
+        } catch (IOException e) {
+            Logger.warn("Failed to read chat archive checkpoint, scanning all segments: " + e.getMessage());
+            return -1L;
+        }
+    }
+
+    private void saveCheckpoint() {
+        final File file = new File(directory, "checkpoint.bin");
+        final File tmp = new File(directory, "checkpoint.bin.tmp");
+        final Segment last = segments.get(segments.size() - 1);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(CHECKPOINT_MAGIC);
+                out.writeLong(pointer(firstSequence + segments.size() - 1, last.end));
+                out.writeInt(heads.size());
+                for (final Map.Entry<Long, Long> entry : heads.entrySet()) {
+                    out.writeLong(entry.getKey());
+                    out.writeLong(entry.getValue());
+                }
+                out.writeInt(users.size());
+                for (final Map.Entry<String, Long> entry : users.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(entry.getValue());
+                }
+            }
+            if (file.exists() && !file.delete()) throw new IOException("Failed to replace " + file);
+            if (!tmp.renameTo(file)) throw new IOException("Failed to move " + tmp);
+        } catch (IOException e) {
+            Logger.warn("Failed to write chat archive checkpoint: " + e.getMessage());
+        }
+    }
+
+    private static long pointer(int sequence, int offset) {
+        return ((long) sequence << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    private File segmentFile(int sequence) {
+        return new File(directory, String.format("%08d.seg", sequence));
+    }
+
+    private static int sequenceOf(File file) throws IOException {
+        try {
+            return Integer.parseInt(file.getName().substring(0, file.getName().length() - 4));
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid archive segment name: " + file);
+        }
+    }
+
+    private static class Segment {
+
+        private final File file;
+        private final MappedByteBuffer buffer;
+        private final int version;
+        private final int recordHeader;
+        private int end;
+        private int count;
+        private long firstTime, lastTime;
+        private long[] indexTimes;
+        private int[] indexOffsets;
+        private int indexSize = 0;
+
+        private Segment(File file, MappedByteBuffer buffer) throws IOException {
+            this.file = file;
+            this.buffer = buffer;
+            this.version = buffer.getInt(4);
+            this.recordHeader = version == 1 ? RECORD_HEADER_V1 : RECORD_HEADER;
+            this.end = buffer.getInt(8);
+            this.count = buffer.getInt(12);
+            this.firstTime = buffer.getLong(16);
+            this.lastTime = buffer.getLong(24);
+            if (end < HEADER_SIZE || end > SEGMENT_SIZE || count < 0) throw new IOException("Corrupt archive segment " + file);
+        }
+
+        private static Segment map(File file, boolean create) throws IOException {
+            if (!create && file.length() != SEGMENT_SIZE) throw new IOException("Invalid archive segment size: " + file);
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_SIZE);
+                if (create) {
+                    buffer.putInt(0, MAGIC);
+                    buffer.putInt(4, VERSION);
+                    buffer.putInt(8, HEADER_SIZE);
+                    buffer.putInt(12, 0);
+                } else if (buffer.getInt(0) != MAGIC) {
+                    throw new IOException("Not a chat archive segment: " + file);
+                } else if (buffer.getInt(4) != VERSION && buffer.getInt(4) != 1) {
+                    throw new IOException("Unsupported chat archive version " + buffer.getInt(4) + " in " + file);
+                }
+                return new Segment(file, buffer);
+            }
+        }
+
+        private void record(int offset, int length, long time) {
+            if (count % INDEX_INTERVAL == 0) index(offset, time);
+            if (count == 0) firstTime = time;
+            lastTime = time;
+            count++;
+            end = offset + length;
+        }
+
+        private void index(int offset, long time) {
+            if (indexSize == indexTimes.length) {
+                indexTimes = Arrays.copyOf(indexTimes, indexSize * 2);
+                indexOffsets = Arrays.copyOf(indexOffsets, indexSize * 2);
+            }
+            indexTimes[indexSize] = time;
+            indexOffsets[indexSize] = offset;
+            indexSize++;
+        }
+
+        /**
+         * Builds the sparse time index by walking the records, unless that was done already.
+         */
+        private void buildIndex() throws IOException {
+            if (indexTimes != null) return;
+            indexTimes = new long[16];
+            indexOffsets = new int[16];
+            int offset = HEADER_SIZE;
+            for (int i = 0; offset < end; i++) {
+                final int length = checkRecord(offset);
+                if (i % INDEX_INTERVAL == 0) index(offset, buffer.getLong(offset + 4));
+                offset += length;
+            }
+        }
+
+        /**
+         * Returns the length of the record at the given offset, after checking that it lies within the segment.
+         */
+        private int checkRecord(int offset) throws IOException {
+            final int length = buffer.getInt(offset);
+            if (length < recordHeader || offset + length > end) throw new IOException("Corrupt record in " + file + " at " + offset);
+            return length;
+        }
+
+        private Message read(int offset) {
+            final int length = buffer.getInt(offset);
+            final int nameLength = buffer.getShort(offset + 28);
+            final int loginLength = version == 1 ? 0 : buffer.get(offset + 30) & 0xFF;
+            final String content = readString(offset + recordHeader + nameLength + loginLength, length - recordHeader - nameLength - loginLength);
+            return new Message(buffer.getLong(offset + 4), readString(offset + recordHeader, nameLength), content);
+        }
+
+        private String readLogin(int offset) {
+            final int nameLength = buffer.getShort(offset + 28);
+            // older records only have the display name
+            if (version == 1) return readString(offset + recordHeader, nameLength).toLowerCase(Locale.ROOT);
+            return readString(offset + recordHeader + nameLength, buffer.get(offset + 30) & 0xFF);
+        }
+
+        private String readString(int offset, int length) {
+            final byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) bytes[i] = buffer.get(offset + i);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Returns the offset of the last indexed record before the given time, scanning starts from there.
+         */
+        private int seek(long time) {
+            int lo = 0, hi = indexSize - 1, found = 0;
+            while (lo <= hi) {
+                final int mid = (lo + hi) >>> 1;
+                if (indexTimes[mid] < time) {
+                    found = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return indexSize == 0 ? HEADER_SIZE : indexOffsets[found];
+        }
+
+    }
+
+    public static class Message {
+
+        private final long time;
+        private final String user;
+        private final String content;
+
+        private Message(long time, String user, String content) {
+            this.time = time;
+            this.user = user;
+            this.content = content;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public String getUser() {
+            return user;
+        }
+
+        public String getContent() {
+            return content;
+        }
+
+    }
+
+}
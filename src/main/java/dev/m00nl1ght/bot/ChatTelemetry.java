@@ -0,0 +1,118 @@
+package dev.m00nl1ght.bot;
+
+import dev.m00nl1ght.bot.util.HyperLogLog;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sliding window chat activity counters with constant memory.
+ * Message and command counts use a ring of per-second buckets, distinct chatters a ring of per-minute HyperLogLogs.
+ */
+public class ChatTelemetry {
+
+    private static final int SECONDS = 60;
+    private static final int MINUTES = 60;
+    private static final int HLL_PRECISION = 10;
+
+    private final long[] secondStamp = new long[SECONDS];
+    private final int[] secondMessages = new int[SECONDS];
+    private final int[] secondCommands = new int[SECONDS];
+
+    private final long[] minuteStamp = new long[MINUTES];
+    private final HyperLogLog[] minuteChatters = new HyperLogLog[MINUTES];
+    private final HyperLogLog merged = new HyperLogLog(HLL_PRECISION);
+
+    private long totalMessages = 0L;
+    private long totalCommands = 0L;
+
+    public ChatTelemetry() {
+        for (int i = 0; i < MINUTES; i++) minuteChatters[i] = new HyperLogLog(HLL_PRECISION);
+    }
+
+    public synchronized void onMessage(long userId, boolean command, long now) {
+        final long second = now / 1000L;
+        final int s = (int) (second % SECONDS);
+        if (secondStamp[s] != second) {
+            secondStamp[s] = second;
+            secondMessages[s] = 0;
+            secondCommands[s] = 0;
+        }
+
+        secondMessages[s]++;
+        totalMessages++;
+        if (command) {
+            secondCommands[s]++;
+            totalCommands++;
+        }
+
+        final long minute = now / 60000L;
+        final int m = (int) (minute % MINUTES);
+        if (minuteStamp[m] != minute) {
+            minuteStamp[m] = minute;
+            minuteChatters[m].clear();
+        }
+
+        minuteChatters[m].add(userId);
+    }
+
+    /**
+     * Messages within the last 60 seconds.
+     */
+    public synchronized int getMessageRate(long now) {
+        return sumSeconds(secondMessages, now);
+    }
+
+    /**
+     * Command invocations within the last 60 seconds.
+     */
+    public synchronized int getCommandRate(long now) {
+        return sumSeconds(secondCommands, now);
+    }
+
+    /**
+     * Estimated distinct chatters within the current and the previous minutes - 1 minutes.
+     */
+    public synchronized long getChatters(int minutes, long now) {
+        final long minute = now / 60000L;
+        merged.clear();
+        for (int i = 0; i < Math.min(minutes, MINUTES); i++) {
+            final long target = minute - i;
+            final int m = (int) (target % MINUTES);
+            if (minuteStamp[m] == target) merged.merge(minuteChatters[m]);
+        }
+        return merged.estimate();
+    }
+
+    public synchronized long getTotalMessages() {
+        return totalMessages;
+    }
+
+    public synchronized long getTotalCommands() {
+        return totalCommands;
+    }
+
+    public Map<String, Number> gauges() {
+        final long now = System.currentTimeMillis();
+        final Map<String, Number> gauges = new LinkedHashMap<>();
+        gauges.put("msg_rate", getMessageRate(now));
+        gauges.put("cmd_rate", getCommandRate(now));
+        gauges.put("chatters_1m", getChatters(1, now));
+        gauges.put("chatters_5m", getChatters(5, now));
+        gauges.put("chatters_15m", getChatters(15, now));
+        gauges.put("chatters_60m", getChatters(60, now));
+        gauges.put("msg_total", getTotalMessages());
+        gauges.put("cmd_total", getTotalCommands());
+        return gauges;
+    }
+
+    private int sumSeconds(int[] buckets, long now) {
+        final long second = now / 1000L;
+        int sum = 0;
+        for (int i = 0; i < SECONDS; i++) {
+            if (second - secondStamp[i] < SECONDS) sum += buckets[i];
+        }
+        return sum;
+    }
+
+}
@@ -40,6 +40,7 @@ public class CommandManager {
         registerType(QuotesCommand.TYPE);
         registerType(ClipCommand.TYPE);
         registerType(MapLookupCommand.TYPE);
+        registerType(EmotesCommand.TYPE);
     }
 
     public Command getCommand(String name) {
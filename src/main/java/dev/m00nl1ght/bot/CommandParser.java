@@ -1,5 +1,6 @@
 package dev.m00nl1ght.bot;
 
+import com.gikk.twirk.types.twitchMessage.MessageAnalysis;
 import com.gikk.twirk.types.twitchMessage.TwitchMessage;
 import dev.m00nl1ght.bot.commands.Command;
 
@@ -21,7 +22,17 @@ public class CommandParser {
     }
 
     public Command parse(TwitchMessage source) {
-        return parse(source, source.getContent(), false);
+        final MessageAnalysis analysis = source.getAnalysis();
+        final String cmd = analysis.getContent();
+        if (!cmd.startsWith("!")) return null;
+        this.source = source;
+        this.params.clear();
+        this.data = cmd;
+        this.isWhisper = false;
+        pos = analysis.getTokenEnd(0);
+        if (pos <= 1) return null;
+        this.command = parent.commandManager.getCommand(cmd.substring(1, pos).toLowerCase());
+        return command;
     }
 
     public Command parse(TwitchMessage source, String cmd, boolean isWhisper) {
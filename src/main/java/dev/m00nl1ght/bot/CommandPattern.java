@@ -15,19 +15,50 @@ public class CommandPattern {
     public static final Function<String, Segment> SEG_ARGUMENT_USERNAME = CommandPattern::segmentArgumentUsername;
     public static final Function<String, Segment> SEG_RANDOM_USER = CommandPattern::segmentRandomUser;
     public static final Function<String, Segment> SEG_SENDER = CommandPattern::segmentSender;
+    public static final Function<String, Segment> SEG_TELEMETRY = CommandPattern::segmentTelemetry;
     protected static final Pattern ARG_PATTERN = Pattern.compile("<(.*?)>");
-    protected static final Segment EMPTY_SEGMENT = (p) -> "";
+    protected static final Segment EMPTY_SEGMENT = new Constant("");
+    private static final int DYNAMIC_SIZE_ESTIMATE = 16;
+    private static volatile long timedCacheTtl = 1000L;
 
-    protected final List<Segment> segments;
+    protected final Segment[] segments;
     protected final String pattern;
+    protected final String constant;
+    protected final Volatility volatility;
+    protected final int sizeEstimate;
+    private volatile Memo memo;
 
     private CommandPattern(String pattern, List<Segment> segments) {
-        this.segments = segments;
         this.pattern = pattern;
+        final List<Segment> merged = new ArrayList<>(segments.size());
+        Volatility volatility = Volatility.CONSTANT;
+        int sizeEstimate = 0;
+        for (final Segment seg : segments) {
+            final int last = merged.size() - 1;
+            if (seg instanceof Constant) {
+                final String value = ((Constant) seg).value;
+                sizeEstimate += value.length();
+                if (value.isEmpty()) continue;
+                if (last >= 0 && merged.get(last) instanceof Constant) {
+                    merged.set(last, new Constant(((Constant) merged.get(last)).value + value));
+                    continue;
+                }
+            } else {
+                sizeEstimate += DYNAMIC_SIZE_ESTIMATE;
+            }
+            if (seg.volatility().compareTo(volatility) > 0) volatility = seg.volatility();
+            merged.add(seg);
+        }
+
+        this.segments = merged.toArray(new Segment[0]);
+        this.volatility = volatility;
+        this.sizeEstimate = sizeEstimate;
+        this.constant = volatility != Volatility.CONSTANT ? null
+                : this.segments.length == 0 ? "" : ((Constant) this.segments[0]).value;
     }
 
     public static CommandPattern compile(String pattern) {
-        return compile(pattern, SEG_STRING, SEG_ARGUMENT, SEG_ARGUMENT_USERNAME, SEG_SENDER, SEG_RANDOM_USER);
+        return compile(pattern, SEG_STRING, SEG_ARGUMENT, SEG_ARGUMENT_USERNAME, SEG_SENDER, SEG_RANDOM_USER, SEG_TELEMETRY);
     }
 
     public static CommandPattern compile(String pattern, Function<String, Segment>... segmentProviders) {
@@ -53,14 +84,8 @@ public class CommandPattern {
             if (seg != null) break;
         }
         if (seg == null) throw new CommandException("Invalid pattern segment: <" + s + ">");
-        if (ori < 0) return seg;
-        final Segment finalSeg = seg;
-        return (p) -> applyOr(p, finalSeg, getSegment(arg.substring(ori + 1), segmentProviders));
-    }
-
-    private static String applyOr(CommandParser p, Segment a, Segment b) {
-        String res = a.apply(p);
-        return res == null ? b.apply(p) : res;
+        if (ori < 0 || seg instanceof Constant) return seg;
+        return new Or(seg, getSegment(arg.substring(ori + 1), segmentProviders));
     }
 
     private static Segment segmentString(String arg) {
@@ -69,7 +94,7 @@ public class CommandPattern {
     }
 
     private static Segment rawString(String str) {
-        return (p) -> str;
+        return new Constant(str);
     }
 
     private static Segment segmentArgument(String arg) {
@@ -118,8 +143,41 @@ public class CommandPattern {
         return null;
     }
 
+    private static Segment segmentTelemetry(String arg) {
+        switch (arg) {
+            case "rate": return timed((p) -> String.valueOf(p.getParent().telemetry.getMessageRate(System.currentTimeMillis())));
+            case "cmdrate": return timed((p) -> String.valueOf(p.getParent().telemetry.getCommandRate(System.currentTimeMillis())));
+            case "chatters": return segmentChatters(5);
+            case "chatters1": return segmentChatters(1);
+            case "chatters5": return segmentChatters(5);
+            case "chatters15": return segmentChatters(15);
+            case "chatters60": return segmentChatters(60);
+            default: return null;
+        }
+    }
+
+    private static Segment segmentChatters(int minutes) {
+        return timed((p) -> String.valueOf(p.getParent().telemetry.getChatters(minutes, System.currentTimeMillis())));
+    }
+
     public String build(CommandParser parser) {
-        StringBuilder sb = new StringBuilder();
+        if (constant != null) return constant;
+
+        final long ttl = timedCacheTtl;
+        if (volatility == Volatility.TIMED && ttl > 0) {
+            final long now = System.currentTimeMillis();
+            final Memo cached = memo;
+            if (cached != null && now < cached.expires) return cached.value;
+            final String value = render(parser);
+            memo = new Memo(value, now + ttl);
+            return value;
+        }
+
+        return render(parser);
+    }
+
+    private String render(CommandParser parser) {
+        final StringBuilder sb = new StringBuilder(sizeEstimate);
         for (Segment seg : segments) {
             String part = seg.apply(parser);
             if (part == null) throw new CommandException("failed to resolve segment");
@@ -128,6 +186,32 @@ public class CommandPattern {
         return sb.toString();
     }
 
+    /**
+     * Drops the memoized result, must be called when state read by timed segments was changed.
+     */
+    public void invalidate() {
+        memo = null;
+    }
+
+    public Volatility volatility() {
+        return volatility;
+    }
+
+    public static void setTimedCacheTtl(long ttl) {
+        timedCacheTtl = ttl;
+    }
+
+    public static long getTimedCacheTtl() {
+        return timedCacheTtl;
+    }
+
+    public static Segment timed(Segment segment) {
+        return new Segment() {
+            @Override public String apply(CommandParser p) {return segment.apply(p);}
+            @Override public Volatility volatility() {return Volatility.TIMED;}
+        };
+    }
+
     public String source() {
         return this.pattern;
     }
@@ -136,6 +220,76 @@ public class CommandPattern {
 
         String apply(CommandParser p);
 
+        default Volatility volatility() {
+            return Volatility.INVOCATION;
+        }
+
+    }
+
+    /**
+     * How long the result of a segment stays valid, ordered from most to least stable.
+     */
+    public enum Volatility {
+        /** Always the same result. */
+        CONSTANT,
+        /** Only depends on time and global state, can be reused for a short while. */
+        TIMED,
+        /** Depends on the invocation (sender, arguments, randomness) and must be evaluated every time. */
+        INVOCATION
+    }
+
+    protected static class Constant implements Segment {
+
+        protected final String value;
+
+        protected Constant(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public String apply(CommandParser p) {
+            return value;
+        }
+
+        @Override
+        public Volatility volatility() {
+            return Volatility.CONSTANT;
+        }
+
+    }
+
+    private static class Or implements Segment {
+
+        private final Segment a, b;
+
+        private Or(Segment a, Segment b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public String apply(CommandParser p) {
+            final String res = a.apply(p);
+            return res == null ? b.apply(p) : res;
+        }
+
+        @Override
+        public Volatility volatility() {
+            return a.volatility().compareTo(b.volatility()) > 0 ? a.volatility() : b.volatility();
+        }
+
+    }
+
+    private static class Memo {
+
+        private final String value;
+        private final long expires;
+
+        private Memo(String value, long expires) {
+            this.value = value;
+            this.expires = expires;
+        }
+
     }
 
 }
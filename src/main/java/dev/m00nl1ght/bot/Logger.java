@@ -1,65 +1,255 @@
 package dev.m00nl1ght.bot;
 
-import sun.security.action.GetPropertyAction;
-
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.security.AccessController;
-import java.text.SimpleDateFormat;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
-import java.util.Date;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
 
+/**
+ * Asynchronous logger. Callers only append records to a lock-free ring buffer,
+ * a background thread formats them and writes them to the console and the log file in batches.
+ * If the buffer is full, records are dropped and the number of dropped records is logged later on.
+ * The log file is rotated once it exceeds the maximum size, rotated files are optionally gzipped.
+ */
 public class Logger {
 
-    private static FileWriter outWriter;
+    private static final int CAPACITY = 1 << 14;
+    private static final int MASK = CAPACITY - 1;
+    private static final long IDLE_PARK = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long FLUSH_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+    private static final DateTimeFormatter logFormat = DateTimeFormatter.ofPattern("MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+    private static final DateTimeFormatter fileFormat = DateTimeFormatter.ofPattern("MM-dd_HH-mm-ss");
+    private static final String lineSeperator = System.lineSeparator();
+
+    private static final AtomicReferenceArray<Record> ring = new AtomicReferenceArray<>(CAPACITY);
+    private static final AtomicLong tail = new AtomicLong();
+    private static final AtomicLong dropped = new AtomicLong();
+    private static final ConcurrentLinkedQueue<Runnable> control = new ConcurrentLinkedQueue<>();
+    private static volatile long head = 0L;
+
+    // only accessed by the writer thread
+    private static Writer outWriter;
     private static File outFile;
-    private static final SimpleDateFormat logFormat = new SimpleDateFormat("MM-dd HH:mm:ss");
-    private static final SimpleDateFormat fileFormat = new SimpleDateFormat("MM-dd_HH-mm-ss");
-    private static final String lineSeperator = AccessController.doPrivileged(new GetPropertyAction("line.separator"));
+    private static CountingOutputStream outCounter;
+    private static long maxBytes = 10L * 1024 * 1024;
+    private static boolean gzipRotated = true;
+    private static long droppedReported = 0L;
+
+    private static final Thread writer = new Thread(Logger::run, "logger");
+
+    static {
+        writer.setDaemon(true);
+        writer.start();
+    }
 
     public static void log(String msg, Object... obj) {
-        out("[INFO] " + (obj.length > 0 ? String.format(msg, obj) : msg));
+        out("[INFO] ", obj.length > 0 ? String.format(msg, obj) : msg);
     }
 
     public static void warn(String msg, Object... obj) {
-        out("[WARN] " + (obj.length > 0 ? String.format(msg, obj) : msg));
+        out("[WARN] ", obj.length > 0 ? String.format(msg, obj) : msg);
     }
 
     public static void error(String msg, Object... obj) {
-        out("[ERROR] " + (obj.length > 0 ? String.format(msg, obj) : msg));
+        out("[ERROR] ", obj.length > 0 ? String.format(msg, obj) : msg);
     }
 
-    private static void out(String str) {
-        System.out.println(str);
-        if (outWriter != null) {
+    public static long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private static void out(String level, String str) {
+        long t;
+        do {
+            t = tail.get();
+            if (t - head >= CAPACITY) {
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!tail.compareAndSet(t, t + 1));
+        ring.lazySet((int) (t & MASK), new Record(System.currentTimeMillis(), level, str));
+    }
+
+    public static void create(File file) {
+        create(file, 10L * 1024 * 1024, true);
+    }
+
+    /**
+     * Starts writing to the given file, an existing file is renamed first.
+     * The file is rotated once it grows larger than maxBytes, or never if maxBytes is 0.
+     */
+    public static void create(File file, long maxBytes, boolean gzipRotated) {
+        onWriter(() -> {
+            closeFile();
+            Logger.maxBytes = maxBytes;
+            Logger.gzipRotated = gzipRotated;
+            if (file.exists()) rotate(file);
+            outFile = file;
             try {
-                outWriter.write(logFormat.format(new Date()) + " " + str + lineSeperator);
-                outWriter.flush();
+                openFile();
             } catch (IOException e) {
-                e.printStackTrace();
-                outWriter = null;
+                throw new RuntimeException("failed to open log file", e);
+            }
+        });
+    }
+
+    /**
+     * Writes all pending records and closes the log file.
+     */
+    public static void dispose() {
+        onWriter(Logger::closeFile);
+    }
+
+    public static void cleanLog() {
+        onWriter(() -> {
+            try {
+                closeFile();
+                outFile.delete();
+                openFile();
+            } catch (Exception e) {
+                throw new RuntimeException("failed to clean log file", e);
+            }
+        });
+    }
+
+    /**
+     * Runs the action on the writer thread after all records logged so far were written, and waits for it.
+     */
+    private static void onWriter(Runnable action) {
+        if (Thread.currentThread() == writer) {
+            action.run();
+            return;
+        }
+
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        control.add(() -> {
+            try {
+                action.run();
+                done.complete(null);
+            } catch (Throwable e) {
+                done.completeExceptionally(e);
             }
+        });
+        LockSupport.unpark(writer);
+        try {
+            done.get(10, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        } catch (Exception e) {
+            throw new RuntimeException("logger did not respond", e);
         }
     }
 
-    public static void create(File file) {
-        if (file.exists()) {
-            String date = logFormat.format(Date.from(Instant.now()));
-            file.renameTo(new File(file.getParentFile(), date + ".txt"));
+    private static void run() {
+        final StringBuilder console = new StringBuilder(8192);
+        final StringBuilder file = new StringBuilder(8192);
+        long lastFlush = System.nanoTime();
+        boolean unflushed = false;
+        while (true) {
+            final int count = drain(console, file);
+            if (count > 0) {
+                System.out.print(console);
+                write(file);
+                console.setLength(0);
+                file.setLength(0);
+                unflushed = true;
+            }
+
+            final long now = System.nanoTime();
+            if (unflushed && (count == 0 || now - lastFlush >= FLUSH_INTERVAL)) {
+                flushFile();
+                lastFlush = now;
+                unflushed = false;
+            }
+
+            Runnable action;
+            while ((action = control.poll()) != null) {
+                drain(console, file);
+                System.out.print(console);
+                write(file);
+                console.setLength(0);
+                file.setLength(0);
+                flushFile();
+                action.run();
+            }
+
+            if (count == 0) LockSupport.parkNanos(IDLE_PARK);
+        }
+    }
+
+    private static int drain(StringBuilder console, StringBuilder file) {
+        int count = 0;
+        final long lost = dropped.get();
+        if (lost != droppedReported) {
+            append(console, file, new Record(System.currentTimeMillis(), "[WARN] ", "Logger dropped " + (lost - droppedReported) + " records, buffer was full"));
+            droppedReported = lost;
+            count++;
         }
 
-        outFile = file;
+        long h = head;
+        while (count <= CAPACITY) {
+            final int idx = (int) (h & MASK);
+            final Record record = ring.get(idx);
+            if (record == null) break;
+            ring.lazySet(idx, null);
+            append(console, file, record);
+            head = ++h;
+            count++;
+        }
+        return count;
+    }
+
+    private static void append(StringBuilder console, StringBuilder file, Record record) {
+        console.append(record.level).append(record.msg).append(lineSeperator);
+        if (outWriter != null) {
+            file.append(logFormat.format(Instant.ofEpochMilli(record.time)))
+                    .append(' ').append(record.level).append(record.msg).append(lineSeperator);
+        }
+    }
 
+    private static void write(StringBuilder batch) {
+        if (outWriter == null || batch.length() == 0) return;
         try {
-            outWriter = new FileWriter(file);
+            outWriter.append(batch);
+            // bytes still in the encoder buffer are not counted yet, so the file may exceed the limit by that much
+            if (maxBytes > 0 && outCounter.count >= maxBytes) {
+                closeFile();
+                rotate(outFile);
+                openFile();
+            }
         } catch (IOException e) {
-            throw new RuntimeException("failed to open log file", e);
+            e.printStackTrace();
+            outWriter = null;
         }
     }
 
-    public static void dispose() {
+    private static void flushFile() {
+        if (outWriter == null) return;
+        try {
+            outWriter.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+            outWriter = null;
+        }
+    }
+
+    private static void openFile() throws IOException {
+        outCounter = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(outFile, true), 64 * 1024), outFile.length());
+        outWriter = new OutputStreamWriter(outCounter, StandardCharsets.UTF_8);
+    }
+
+    private static void closeFile() {
         if (outWriter != null) {
             try {
                 outWriter.close();
@@ -71,14 +261,70 @@ public class Logger {
         }
     }
 
-    public static void cleanLog() {
-        try {
-            outWriter.close();
-            outFile.delete();
-            outWriter = new FileWriter(outFile);
-        } catch (Exception e) {
-            throw new RuntimeException("failed to clean log file", e);
+    private static void rotate(File file) {
+        final String date = fileFormat.format(LocalDateTime.now());
+        final File dir = file.getAbsoluteFile().getParentFile();
+        File rotated = new File(dir, date + ".txt");
+        for (int i = 1; rotated.exists() || new File(rotated.getPath() + ".gz").exists(); i++) {
+            rotated = new File(dir, date + "_" + i + ".txt");
         }
+        if (!file.renameTo(rotated)) {
+            System.err.println("Failed to rotate log file " + file);
+            return;
+        }
+
+        if (!gzipRotated) return;
+        final File gz = new File(rotated.getPath() + ".gz");
+        try (InputStream in = new FileInputStream(rotated); OutputStream out = new GZIPOutputStream(new FileOutputStream(gz))) {
+            final byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) >= 0) out.write(buffer, 0, read);
+        } catch (IOException e) {
+            System.err.println("Failed to compress log file " + rotated + ": " + e.getMessage());
+            gz.delete();
+            return;
+        }
+        rotated.delete();
+    }
+
+    /**
+     * Counts the encoded bytes written to the log file, starting from its size when it was opened.
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        private CountingOutputStream(OutputStream out, long count) {
+            super(out);
+            this.count = count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+    }
+
+    private static class Record {
+
+        private final long time;
+        private final String level;
+        private final String msg;
+
+        private Record(long time, String level, String msg) {
+            this.time = time;
+            this.level = level;
+            this.msg = msg;
+        }
+
     }
 
 }
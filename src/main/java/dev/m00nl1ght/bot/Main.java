@@ -19,14 +19,15 @@ public class Main {
         config.load();
         //config.save();
 
-        final Twirk bot = new TwirkBuilder("#" + config.CHANNEL, config.USERNAME, config.OAUTH).setBotOwner(config.OWNER).build();
+        final Twirk bot = new TwirkBuilder("#" + config.CHANNEL, config.USERNAME, config.OAUTH).setBotOwner(config.OWNER)
+                .setParseParallelism(config.PARSE_THREADS).build();
         final MainListener core = new MainListener(bot, config);
         TwistExtension.register(core); // optional channel-specific extension
         GwentExtension.register(core); // optional channel-specific extension
         core.load();
         bot.addIrcListener(core);
         Runtime.getRuntime().addShutdownHook(new Thread(() -> core.exit()));
-        if (!config.LOGFILE.isEmpty()) Logger.create(new File(config.LOGFILE));
+        if (!config.LOGFILE.isEmpty()) Logger.create(new File(config.LOGFILE), config.LOG_MAX_MB * 1024L * 1024L, config.LOG_GZIP);
         bot.connect();
 
     }
@@ -12,8 +12,11 @@ import com.gikk.twirk.types.usernotice.Usernotice;
 import com.gikk.twirk.types.users.TwitchUser;
 import dev.m00nl1ght.bot.answers.AnswersManager;
 import dev.m00nl1ght.bot.commands.Command;
+import dev.m00nl1ght.bot.listener.HighlightEngine;
+import dev.m00nl1ght.bot.listener.HighlightTermListener;
 import dev.m00nl1ght.bot.listener.MsgListener;
 import dev.m00nl1ght.bot.listener.MsgListenerTypes;
+import dev.m00nl1ght.bot.util.HashedWheelTimer;
 import dev.m00nl1ght.bot.util.TwitchAPI;
 import org.json.JSONObject;
 import org.json.JSONTokener;
@@ -21,8 +24,8 @@ import org.json.JSONTokener;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 public class MainListener implements TwirkListener {
@@ -30,10 +33,17 @@ public class MainListener implements TwirkListener {
     private final Twirk bot;
     private final Profile profile;
     private final TwitchAPI twitchAPI;
+    private final HashedWheelTimer timer = new HashedWheelTimer("timer", 100L, 512);
     public final CommandManager commandManager = new CommandManager(this);
     public final AnswersManager answersManager = new AnswersManager(this);
     public final CommandParser parser = new CommandParser(this);
+    public final ChatTelemetry telemetry = new ChatTelemetry();
+    public final VoteEngine votes = new VoteEngine(this);
+    public final ChatArchive archive;
     public final Map<String, MsgListener> msgListeners = new HashMap<>();
+    private MsgListener[] activeListeners = new MsgListener[0];
+    private HighlightEngine highlightEngine = new HighlightEngine(Collections.emptyList());
+    private HighlightEngine.Sink highlightSink = HighlightEngine.LOG_SINK;
     protected boolean active = true;
     public boolean logVerbose = false;
     private String whisperPrefix = "";
@@ -42,11 +52,21 @@ public class MainListener implements TwirkListener {
         this.bot = bot;
         this.profile = profile;
         this.twitchAPI = new TwitchAPI(profile.TWITCH_CLIENT_ID);
+        this.archive = new ChatArchive(getDataFile("archive"));
+        try {
+            archive.open();
+        } catch (Exception e) {
+            Logger.error("Failed to open chat archive: " + e.getMessage());
+        }
     }
 
     @Override
     public void onPrivMsg(TwitchMessage message) {
         Command cmd = parser.parse(message);
+        telemetry.onMessage(message.getUser().getUserID(), cmd != null, System.currentTimeMillis());
+        votes.onMessage(message);
+        archive.append(System.currentTimeMillis(), message.getUser().getUserID(), message.getUser().getUserName(),
+                message.getUser().getDisplayName(), message.getContent());
         if (cmd != null) {
             if (cmd.isOnCooldown()) return;
             if (cmd.canExecute(parser)) {
@@ -80,7 +100,8 @@ public class MainListener implements TwirkListener {
     }
 
     private boolean checkMsgListeners(TwitchMessage msg) {
-        for (MsgListener listener : msgListeners.values())
+        highlightEngine.onMsg(msg, highlightSink);
+        for (MsgListener listener : activeListeners)
             if (listener.onMsg(msg)) return true;
         return false;
     }
@@ -158,6 +179,11 @@ public class MainListener implements TwirkListener {
         bot.channelMessage(msg);
     }
 
+    public void sendMessage(String msg, long delayMillis) {
+        Logger.log("OUT +" + delayMillis + "ms " + msg);
+        bot.channelMessage(msg, delayMillis);
+    }
+
     public void sendMessage(TwitchUser user, String msg) {
         sendMessage("@" + user.getDisplayName() + " " + msg);
     }
@@ -174,25 +200,25 @@ public class MainListener implements TwirkListener {
 
     @Override
     public void onDisconnect() {
-        int delay = profile.RECONNECT_DELAY_MIN;
         Logger.warn("Disconnected! Trying to reconnect...");
-        while (!bot.isConnected()) {
-            try {
-                if (bot.connect()) break;
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-            Logger.warn("Failed to reconnect! Trying again in " + delay + " ms");
-            try {
-                Thread.sleep(delay);
-            } catch (Exception e) {
-            }
-            delay *= 2;
-            if (delay > profile.RECONNECT_DELAY_MAX) {
+        timer.schedule(() -> reconnect(profile.RECONNECT_DELAY_MIN), 0L, TimeUnit.MILLISECONDS);
+    }
+
+    private void reconnect(int delay) {
+        if (bot.isConnected()) return;
+        try {
+            if (bot.connect()) return;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        Logger.warn("Failed to reconnect! Trying again in " + delay + " ms");
+        timer.schedule(() -> {
+            if (delay * 2 > profile.RECONNECT_DELAY_MAX) {
                 this.save();
                 System.exit(71);
             }
-        }
+            reconnect(delay * 2);
+        }, delay, TimeUnit.MILLISECONDS);
     }
 
     public boolean isActive() {
@@ -207,6 +233,7 @@ public class MainListener implements TwirkListener {
         Logger.log("Shutting down...");
         bot.close();
         this.save();
+        archive.close();
         Logger.log("Finished.");
         Logger.dispose();
     }
@@ -220,6 +247,7 @@ public class MainListener implements TwirkListener {
             target.delete();
             JSONObject object = new JSONObject();
             object.put("whisperPrefix", whisperPrefix);
+            object.put("patternCacheTtl", CommandPattern.getTimedCacheTtl());
             object.put("cmd", commandManager.save());
             object.put("aws", answersManager.save());
             object.put("listeners", MsgListenerTypes.save(this));
@@ -242,6 +270,7 @@ public class MainListener implements TwirkListener {
                 JSONTokener tokener = new JSONTokener(new FileReader(target));
                 JSONObject object = new JSONObject(tokener);
                 this.whisperPrefix = object.optString("whisperPrefix", "");
+                CommandPattern.setTimedCacheTtl(object.optLong("patternCacheTtl", 1000L));
                 if (!object.has("cmd")) { // old format
                     commandManager.load(object);
                 } else {
@@ -267,6 +296,10 @@ public class MainListener implements TwirkListener {
         return profile.ABOUT;
     }
 
+    public HashedWheelTimer getTimer() {
+        return timer;
+    }
+
     public Twirk getBot() {
         return bot;
     }
@@ -284,7 +317,10 @@ public class MainListener implements TwirkListener {
     }
 
     public void addMsgListener(MsgListener listener) {
-        msgListeners.put(listener.getName(), listener);
+        final MsgListener replaced = msgListeners.put(listener.getName(), listener);
+        if (replaced != null && replaced != listener) replaced.onRemoved();
+        listener.onAdded(this);
+        rebuildMsgListeners();
     }
 
     public <T extends MsgListener> T getOrCreateListener(String name, String type, Class<T> clazz) {
@@ -299,7 +335,30 @@ public class MainListener implements TwirkListener {
     }
 
     public boolean removeMsgListener(String name) {
-        return msgListeners.remove(name) != null;
+        final MsgListener removed = msgListeners.remove(name);
+        if (removed == null) return false;
+        removed.onRemoved();
+        rebuildMsgListeners();
+        return true;
+    }
+
+    private void rebuildMsgListeners() {
+        final List<MsgListener> active = new ArrayList<>();
+        final List<String> terms = new ArrayList<>();
+        for (final MsgListener listener : msgListeners.values()) {
+            if (listener instanceof HighlightTermListener) {
+                final String term = ((HighlightTermListener) listener).getTerm();
+                if (term != null) terms.add(term);
+            } else {
+                active.add(listener);
+            }
+        }
+        activeListeners = active.toArray(new MsgListener[0]);
+        highlightEngine = new HighlightEngine(terms);
+    }
+
+    public void setHighlightSink(HighlightEngine.Sink highlightSink) {
+        this.highlightSink = highlightSink;
     }
 
 }
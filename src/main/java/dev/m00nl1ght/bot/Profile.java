@@ -24,6 +24,9 @@ public class Profile {
     public String STEAM_API_KEY;
     public String TWITCH_CLIENT_ID;
     public String LOGFILE;
+    public int LOG_MAX_MB;
+    public boolean LOG_GZIP;
+    public int PARSE_THREADS;
 
     public int RECONNECT_DELAY_MIN;
     public int RECONNECT_DELAY_MAX;
@@ -48,6 +51,9 @@ public class Profile {
                 STEAM_API_KEY = object.optString("steam_api", "");
                 TWITCH_CLIENT_ID = object.optString("client_id", "");
                 LOGFILE = object.optString("log_file");
+                LOG_MAX_MB = object.optInt("log_max_mb", 10);
+                LOG_GZIP = object.optBoolean("log_gzip", true);
+                PARSE_THREADS = object.optInt("parse_threads", 0);
                 RECONNECT_DELAY_MIN = object.getInt("reconnect_delay_min");
                 RECONNECT_DELAY_MAX = object.getInt("reconnect_delay_max");
             } catch (Exception e) {
@@ -70,6 +76,9 @@ public class Profile {
             object.put("steam_api", STEAM_API_KEY);
             object.put("client_id", TWITCH_CLIENT_ID);
             object.put("log_file", LOGFILE);
+            object.put("log_max_mb", LOG_MAX_MB);
+            object.put("log_gzip", LOG_GZIP);
+            object.put("parse_threads", PARSE_THREADS);
             object.put("reconnect_delay_min", RECONNECT_DELAY_MIN);
             object.put("reconnect_delay_max", RECONNECT_DELAY_MAX);
             FileWriter w = new FileWriter(CONFIG);
@@ -0,0 +1,188 @@
+package dev.m00nl1ght.bot;
+
+import com.gikk.twirk.types.twitchMessage.MessageAnalysis;
+import com.gikk.twirk.types.twitchMessage.TwitchMessage;
+import dev.m00nl1ght.bot.util.HashedWheelTimer;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Runs chat polls on the shared timer. Votes are the first word of a message matching one of the options,
+ * several polls can run at once as long as their options differ. Each user has one vote per poll,
+ * voting again moves it to the new option. Tallies are updated without locking.
+ */
+public class VoteEngine {
+
+    public static final int MAX_POLLS = 5;
+    private static final long TICK = 1000L;
+    private static final int NOTICE_MSG_GAP = 10;
+    private static final long NOTICE_MIN_INTERVAL = 10000L;
+
+    private final MainListener parent;
+    private final Map<Integer, Poll> polls = new ConcurrentHashMap<>();
+    private final Map<String, Choice> choices = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    public VoteEngine(MainListener parent) {
+        this.parent = parent;
+    }
+
+    public void onMessage(TwitchMessage message) {
+        if (polls.isEmpty()) return;
+        for (final Poll poll : polls.values()) poll.sinceNotice.incrementAndGet();
+        final MessageAnalysis analysis = message.getAnalysis();
+        if (analysis.getTokenCount() == 0) return;
+        final Choice choice = choices.get(analysis.getToken(0).toLowerCase(Locale.ROOT));
+        if (choice != null && choice.poll.open) choice.poll.vote(message.getUser().getUserID(), choice.option);
+    }
+
+    public synchronized Poll start(String[] options, long duration) {
+        if (polls.size() >= MAX_POLLS) throw new CommandException("too many active votes");
+        final Set<String> keys = new HashSet<>();
+        for (final String option : options) {
+            final String key = option.toLowerCase(Locale.ROOT);
+            if (!keys.add(key)) throw new CommandException("duplicate option: " + option);
+            if (choices.containsKey(key)) throw new CommandException("option already used by another vote: " + option);
+        }
+
+        final Poll poll = new Poll(nextId.incrementAndGet(), options, duration);
+        for (int i = 0; i < options.length; i++) choices.put(options[i].toLowerCase(Locale.ROOT), new Choice(poll, i));
+        polls.put(poll.id, poll);
+        parent.sendMessage("/me Quickvote " + poll.label() + "started: Use " + poll.optionList() + " to vote. Time remaining: " + formatTime(duration));
+        poll.ticker = parent.getTimer().scheduleAtFixedRate(poll::tick, TICK, TICK, TimeUnit.MILLISECONDS);
+        return poll;
+    }
+
+    /**
+     * Returns the poll with the given id, or the only active poll if no id is given.
+     */
+    public Poll find(int id) {
+        if (id > 0) {
+            final Poll poll = polls.get(id);
+            if (poll == null) throw new CommandException("No active vote with id " + id);
+            return poll;
+        }
+
+        final Collection<Poll> active = polls.values();
+        if (active.isEmpty()) throw new CommandException("No active vote.");
+        if (active.size() > 1) throw new CommandException("Several votes are active, specify the id: " + polls.keySet());
+        return active.iterator().next();
+    }
+
+    public Collection<Poll> getPolls() {
+        return Collections.unmodifiableCollection(polls.values());
+    }
+
+    private synchronized void close(Poll poll) {
+        if (!poll.open) return;
+        poll.open = false;
+        poll.ticker.cancel();
+        polls.remove(poll.id);
+        for (final String option : poll.options) choices.remove(option.toLowerCase(Locale.ROOT));
+    }
+
+    private static String formatTime(long millis) {
+        return Long.toString(millis / 1000) + "s";
+    }
+
+    public class Poll {
+
+        private final int id;
+        private final String[] options;
+        private final Map<Long, Integer> votes = new ConcurrentHashMap<>();
+        private final AtomicIntegerArray tallies;
+        private final AtomicInteger sinceNotice = new AtomicInteger();
+        private volatile long endTime;
+        private volatile boolean open = true;
+        private long lastNotice;
+        private HashedWheelTimer.Timeout ticker;
+
+        private Poll(int id, String[] options, long duration) {
+            this.id = id;
+            this.options = options;
+            this.tallies = new AtomicIntegerArray(options.length);
+            this.endTime = System.currentTimeMillis() + duration;
+            this.lastNotice = System.currentTimeMillis();
+        }
+
+        private void vote(long user, int option) {
+            final Integer prev = votes.put(user, option);
+            if (prev != null && prev == option) return;
+            tallies.incrementAndGet(option);
+            if (prev != null) tallies.decrementAndGet(prev);
+        }
+
+        private void tick() {
+            try {
+                final long now = System.currentTimeMillis();
+                if (now >= endTime) {
+                    close(this);
+                    parent.sendMessage("/me Quickvote " + label() + "ended!");
+                    parent.sendMessage("/me Results: " + results());
+                } else if (sinceNotice.get() >= NOTICE_MSG_GAP && now - lastNotice >= NOTICE_MIN_INTERVAL) {
+                    sinceNotice.set(0);
+                    lastNotice = now;
+                    parent.sendMessage("/me Quickvote " + label() + "active: Use " + optionList() + " to vote. "
+                            + results() + " Time remaining: " + formatTime(endTime - now));
+                }
+            } catch (Exception e) {
+                Logger.error("Quickvote tick failed: " + e.getMessage());
+            }
+        }
+
+        public void end() {
+            endTime = 0L;
+        }
+
+        public void cancel() {
+            close(this);
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public int getVoteCount() {
+            return votes.size();
+        }
+
+        public String results() {
+            final StringBuilder r = new StringBuilder();
+            for (int i = 0; i < options.length; i++) {
+                r.append(tallies.get(i)).append("x ").append(options[i]).append("  ");
+            }
+            return r.toString().trim();
+        }
+
+        public long getRemaining() {
+            return Math.max(0L, endTime - System.currentTimeMillis());
+        }
+
+        private String label() {
+            return "#" + id + " ";
+        }
+
+        private String optionList() {
+            if (options.length == 1) return options[0];
+            return String.join(", ", Arrays.copyOf(options, options.length - 1)) + " or " + options[options.length - 1];
+        }
+
+    }
+
+    private static class Choice {
+
+        private final Poll poll;
+        private final int option;
+
+        private Choice(Poll poll, int option) {
+            this.poll = poll;
+            this.option = option;
+        }
+
+    }
+
+}
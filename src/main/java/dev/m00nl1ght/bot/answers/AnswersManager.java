@@ -3,7 +3,6 @@ package dev.m00nl1ght.bot.answers;
 import com.gikk.twirk.types.twitchMessage.TwitchMessage;
 import dev.m00nl1ght.bot.CommandException;
 import dev.m00nl1ght.bot.MainListener;
-import dev.m00nl1ght.bot.commands.Command;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -15,6 +14,7 @@ public class AnswersManager {
     private Mode mode = Mode.OFF;
     private final MainListener core;
     private final HashMap<String, Answer> answers = new HashMap<>();
+    private volatile TriggerIndex triggerIndex;
 
     public AnswersManager(MainListener core) {
         this.core = core;
@@ -22,32 +22,39 @@ public class AnswersManager {
 
     public boolean onMessage(TwitchMessage message) {
         if (mode == Mode.OFF) return false;
-        final String msg = message.getContent().toLowerCase();
+        final String msg = message.getAnalysis().getLowerCase();
         final int q = msg.indexOf('?');
         if (q < 0) return false;
         // if (q < msg.length() * 0.55) return false;
 
-        final String rMsg = " " + msg.replace('?', ' ');
-        for (final Answer a : answers.values()) {
-            for (final Trigger trg : a.triggers) {
-                if (trg.test(rMsg, q + 1)) {
-                    if (a.lastTrigger + a.cooldown > System.currentTimeMillis()) return false;
-
-                    if (!a.response.isEmpty()) {
-                        if (mode == Mode.MENTION) {
-                            core.sendMessage(message.getUser(), a.response);
-                        } else {
-                            core.sendMessage(a.response);
-                        }
-                    }
-
-                    a.lastTrigger = System.currentTimeMillis();
-                    a.stat_total++;
-                    return true;
-                }
+        final Answer a = triggerIndex().match(msg, q + 1);
+        if (a == null) return false;
+        if (a.lastTrigger + a.cooldown > System.currentTimeMillis()) return false;
+
+        if (!a.response.isEmpty()) {
+            if (mode == Mode.MENTION) {
+                core.sendMessage(message.getUser(), a.response);
+            } else {
+                core.sendMessage(a.response);
             }
         }
-        return false;
+
+        a.lastTrigger = System.currentTimeMillis();
+        a.stat_total++;
+        return true;
+    }
+
+    private TriggerIndex triggerIndex() {
+        TriggerIndex index = triggerIndex;
+        if (index == null) triggerIndex = index = new TriggerIndex(answers.values());
+        return index;
+    }
+
+    /**
+     * Must be called after the triggers of an answer were modified.
+     */
+    public void invalidate() {
+        triggerIndex = null;
     }
 
     public Answer getAnswer(String name) {
@@ -59,12 +66,14 @@ public class AnswersManager {
     public Answer getOrCreateAnswer(String name, String response) {
         final Answer a = answers.computeIfAbsent(name, (n) -> new Answer(n, response));
         a.response = response;
+        invalidate();
         return a;
     }
 
     public void deleteAnswer(String name) {
         Object rem = answers.remove(name);
         if (rem == null) throw new CommandException("Answer " + name + " does not exist");
+        invalidate();
     }
 
     public void load(JSONObject object) throws JSONException {
@@ -76,6 +85,7 @@ public class AnswersManager {
             Answer a = Answer.load(core, aw);
             answers.put(a.getName(), a);
         }
+        invalidate();
     }
 
     public JSONObject save() throws JSONException {
@@ -1,7 +1,7 @@
 package dev.m00nl1ght.bot.answers;
 
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -11,6 +11,8 @@ public interface Trigger {
 
     String pattern();
 
+    List<String> keywords();
+
     public static Trigger fromPattern(String pattern) {
         String[] kw = pattern.toLowerCase().split("&");
         if (kw.length == 1) {
@@ -39,6 +41,11 @@ public interface Trigger {
             return keyword;
         }
 
+        @Override
+        public List<String> keywords() {
+            return Collections.singletonList(keyword);
+        }
+
     }
 
     public static class Multi implements Trigger {
@@ -63,6 +70,11 @@ public interface Trigger {
             return keywords.stream().collect(Collectors.joining("&"));
         }
 
+        @Override
+        public List<String> keywords() {
+            return keywords;
+        }
+
     }
 
 }
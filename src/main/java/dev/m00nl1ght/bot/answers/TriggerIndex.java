@@ -0,0 +1,100 @@
+package dev.m00nl1ght.bot.answers;
+
+import dev.m00nl1ght.bot.util.KeywordMatcher;
+
+import java.util.*;
+
+/**
+ * All keywords of all answer triggers compiled into one automaton.
+ * Matching is equivalent to testing each trigger in order against {@code " " + msg.replace('?', ' ')}
+ * and returning the answer of the first one that matches.
+ */
+class TriggerIndex implements KeywordMatcher.MatchHandler {
+
+    private final KeywordMatcher matcher;
+    private final Answer[] answers;
+    private final int[] required;
+    private final int[][] keywordTriggers;
+    private final int alwaysMatching;
+
+    private final int[] keywordEpoch;
+    private final int[] triggerEpoch;
+    private final int[] triggerCount;
+    private int epoch = 0;
+    private int limit;
+    private int best;
+
+    TriggerIndex(Collection<Answer> source) {
+        final List<Answer> answers = new ArrayList<>();
+        final List<Integer> required = new ArrayList<>();
+        final Map<String, Integer> keywordIds = new LinkedHashMap<>();
+        final List<List<Integer>> keywordTriggers = new ArrayList<>();
+        int alwaysMatching = Integer.MAX_VALUE;
+
+        for (final Answer answer : source) {
+            for (final Trigger trigger : answer.triggers) {
+                final int t = answers.size();
+                final Set<String> keywords = new HashSet<>();
+                for (final String keyword : trigger.keywords()) keywords.add(keyword.toLowerCase());
+                keywords.remove("");
+                answers.add(answer);
+                required.add(keywords.size());
+                if (keywords.isEmpty()) alwaysMatching = Math.min(alwaysMatching, t);
+                for (final String keyword : keywords) {
+                    final int k = keywordIds.computeIfAbsent(keyword, kw -> keywordIds.size());
+                    if (k == keywordTriggers.size()) keywordTriggers.add(new ArrayList<>());
+                    keywordTriggers.get(k).add(t);
+                }
+            }
+        }
+
+        this.matcher = new KeywordMatcher(new ArrayList<>(keywordIds.keySet()), false);
+        this.answers = answers.toArray(new Answer[0]);
+        this.required = required.stream().mapToInt(Integer::intValue).toArray();
+        this.keywordTriggers = new int[keywordTriggers.size()][];
+        for (int k = 0; k < this.keywordTriggers.length; k++) {
+            this.keywordTriggers[k] = keywordTriggers.get(k).stream().mapToInt(Integer::intValue).toArray();
+        }
+        this.alwaysMatching = alwaysMatching;
+        this.keywordEpoch = new int[this.keywordTriggers.length];
+        this.triggerEpoch = new int[this.answers.length];
+        this.triggerCount = new int[this.answers.length];
+    }
+
+    /**
+     * Returns the answer of the first trigger whose keywords all start before the given
+     * position in the space-prefixed message, or null if there is none. The message must be lower case.
+     */
+    synchronized Answer match(String msg, int q) {
+        epoch++;
+        limit = q;
+        best = alwaysMatching;
+
+        // a keyword starting before q ends before q + maxLength
+        final int end = Math.min(msg.length() + 1, q + matcher.getMaxLength());
+        int state = matcher.next(matcher.start(), ' ');
+        matcher.report(state, 1, this);
+        for (int i = 1; i < end; i++) {
+            final char c = msg.charAt(i - 1);
+            state = matcher.next(state, c == '?' ? ' ' : c);
+            matcher.report(state, i + 1, this);
+        }
+
+        return best == Integer.MAX_VALUE ? null : answers[best];
+    }
+
+    @Override
+    public boolean onMatch(int keyword, int start, int end) {
+        if (start >= limit || keywordEpoch[keyword] == epoch) return true;
+        keywordEpoch[keyword] = epoch;
+        for (final int t : keywordTriggers[keyword]) {
+            if (triggerEpoch[t] != epoch) {
+                triggerEpoch[t] = epoch;
+                triggerCount[t] = 0;
+            }
+            if (++triggerCount[t] == required[t] && t < best) best = t;
+        }
+        return true;
+    }
+
+}
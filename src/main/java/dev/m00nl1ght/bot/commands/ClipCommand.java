@@ -4,12 +4,14 @@ import com.gikk.twirk.enums.USER_LEVEL;
 import dev.m00nl1ght.bot.CommandException;
 import dev.m00nl1ght.bot.CommandParser;
 import dev.m00nl1ght.bot.MainListener;
+import dev.m00nl1ght.bot.util.FuzzyIndex;
 import dev.m00nl1ght.bot.util.SearchUtil;
+import dev.m00nl1ght.bot.util.TextIndex;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -17,13 +19,15 @@ public class ClipCommand extends ComplexCommand {
 
     public static final Type TYPE = new Type("clip");
 
-    private final Map<String, String> NAME_TO_ID = new HashMap<>();
+    private final Map<String, String> NAME_TO_ID = new FuzzyIndex<>();
+    private final TextIndex<String> NAME_INDEX = new TextIndex<>();
 
     protected ClipCommand(Type type, MainListener parent, String name) {
         super(type, parent, name);
         this.addSubCommand(new Find(parent, "find"));
         this.addSubCommand(new Save(parent, "save"));
         this.addSubCommand(new Remove(parent, "remove"));
+        this.addSubCommand(new Search(parent, "search"));
     }
 
     protected class Find extends Command {
@@ -50,6 +54,32 @@ public class ClipCommand extends ComplexCommand {
 
     }
 
+    protected class Search extends Command {
+
+        protected Search(MainListener parent, String name) {
+            super(null, parent, name);
+            setCooldown(5000);
+        }
+
+        @Override
+        public void execute(CommandParser parser) {
+            final String query = parser.readAll().trim();
+            if (query.isEmpty()) {
+                parser.sendResponse("Usage: !" + ClipCommand.this.name + " " + name + " <words>");
+                return;
+            }
+            final List<String> found = NAME_INDEX.search(query, 3);
+            if (found.isEmpty()) {
+                parser.sendResponse("Clip not found.");
+            } else {
+                final String best = found.get(0);
+                final String others = found.size() > 1 ? " (also: " + String.join(", ", found.subList(1, found.size())) + ")" : "";
+                parser.send(best + ": " + clipIdToUrl(NAME_TO_ID.get(best)) + others);
+            }
+        }
+
+    }
+
     protected class Save extends Command {
 
         protected Save(MainListener parent, String name) {
@@ -71,6 +101,7 @@ public class ClipCommand extends ComplexCommand {
                 if (name.length() < 5) throw new CommandException("clip name must be at least 5 characters long");
                 final String existing = NAME_TO_ID.putIfAbsent(name, clipId);
                 if (existing == null) {
+                    NAME_INDEX.put(name, name);
                     parser.sendResponse("Clip saved: " + name);
                 } else {
                     parser.sendResponse("Error: A clip with this name already exists!");
@@ -95,6 +126,7 @@ public class ClipCommand extends ComplexCommand {
             } else {
                 Optional<String> ret = SearchUtil.findMatchKey(NAME_TO_ID, query, 0.5D);
                 if (ret.isPresent() && NAME_TO_ID.remove(ret.get()) != null) {
+                    NAME_INDEX.remove(ret.get());
                     parser.sendResponse("Clip removed: " + ret.get());
                 } else {
                     parser.sendResponse("Clip not found.");
@@ -121,11 +153,13 @@ public class ClipCommand extends ComplexCommand {
     public void load(JSONObject data) throws JSONException {
         super.load(data);
         this.NAME_TO_ID.clear();
+        this.NAME_INDEX.clear();
         final JSONObject saved = data.getJSONObject("saved");
         final Iterator keys = saved.keys();
         while (keys.hasNext()) {
             final String key = keys.next().toString();
             NAME_TO_ID.put(key, saved.getString(key));
+            NAME_INDEX.put(key, key);
         }
     }
 
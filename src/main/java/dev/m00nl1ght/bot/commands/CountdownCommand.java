@@ -32,7 +32,7 @@ public class CountdownCommand extends Command {
 
     private static CommandPattern.Segment countdownSegment(String arg) {
         if (arg.equals("cd") || arg.equals("countdown"))
-            return (p) -> ((CountdownCommand) p.getCommand()).timeString();
+            return CommandPattern.timed((p) -> ((CountdownCommand) p.getCommand()).timeString());
         return null;
     }
 
@@ -0,0 +1,101 @@
+package dev.m00nl1ght.bot.commands;
+
+import com.gikk.twirk.enums.USER_LEVEL;
+import dev.m00nl1ght.bot.CommandException;
+import dev.m00nl1ght.bot.CommandParser;
+import dev.m00nl1ght.bot.MainListener;
+import dev.m00nl1ght.bot.listener.EmoteStatsListener;
+import dev.m00nl1ght.bot.util.SpaceSaving;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class EmotesCommand extends ComplexCommand {
+
+    public static final Type TYPE = new Type("emotes");
+
+    protected EmotesCommand(Type type, MainListener parent, String name) {
+        super(type, parent, name);
+        this.addSubCommand(new Top(parent, "*", false));
+        this.addSubCommand(new Top(parent, "top", true));
+        this.addSubCommand(new Reset(parent, "reset"));
+    }
+
+    private EmoteStatsListener stats() {
+        return parent.getOrCreateListener(EmoteStatsListener.ID, EmoteStatsListener.ID, EmoteStatsListener.class);
+    }
+
+    protected class Top extends Command {
+
+        private final boolean named;
+
+        protected Top(MainListener parent, String name, boolean named) {
+            super(null, parent, name);
+            this.named = named;
+        }
+
+        @Override
+        public void execute(CommandParser parser) {
+            // the parent already read the first param to pick the sub-command
+            String scope = named ? parser.nextParam() : parser.getParam(1);
+            int n = 5;
+            if (scope.isEmpty()) {
+                scope = "stream";
+            } else if (Character.isDigit(scope.charAt(0))) {
+                n = CommandParser.intOr(scope, n);
+                scope = "stream";
+            } else {
+                n = parser.nextParamInt(n);
+            }
+            if (n < 1 || n > 10) throw new CommandException("count must be between 1 and 10");
+
+            final EmoteStatsListener stats = stats();
+            final List<SpaceSaving.Entry> top = stats.top(scope, n);
+            if (top.isEmpty()) {
+                parser.sendResponse("No emotes used this " + scope + " yet.");
+                return;
+            }
+            parser.send("Top emotes this " + scope + " (" + stats.getTotal(scope) + " total): " + top.stream()
+                    .map(e -> (e.getLabel() == null ? "#" + e.getKey() : e.getLabel()) + " " + e.getCount())
+                    .collect(Collectors.joining(", ")));
+        }
+
+    }
+
+    protected class Reset extends Command {
+
+        protected Reset(MainListener parent, String name) {
+            super(null, parent, name);
+            this.perm = USER_LEVEL.MOD.value;
+        }
+
+        @Override
+        public void execute(CommandParser parser) {
+            stats().endStream(System.currentTimeMillis());
+            parser.sendResponse("Emote stats saved and reset for a new stream.");
+        }
+
+    }
+
+    public static class Type extends Command.Type<EmotesCommand> {
+
+        protected Type(String name) {
+            super(name);
+            defaultCooldown = 10000;
+        }
+
+        @Override
+        public EmotesCommand build(MainListener parent, String name, String pattern) {
+            final EmotesCommand command = super.build(parent, name, pattern);
+            command.stats();
+            return command;
+        }
+
+        @Override
+        protected EmotesCommand createInstance(MainListener parent, String name) {
+            return new EmotesCommand(this, parent, name);
+        }
+
+    }
+
+}
@@ -4,12 +4,14 @@ import com.gikk.twirk.enums.USER_LEVEL;
 import dev.m00nl1ght.bot.CommandException;
 import dev.m00nl1ght.bot.CommandParser;
 import dev.m00nl1ght.bot.MainListener;
+import dev.m00nl1ght.bot.util.FuzzyIndex;
 import dev.m00nl1ght.bot.util.SearchUtil;
+import dev.m00nl1ght.bot.util.TextIndex;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -17,7 +19,8 @@ public class MapLookupCommand extends ComplexCommand {
 
     public static final Type TYPE = new Type("lookup");
 
-    private final Map<String, String> NAME_TO_MSG = new HashMap<>();
+    private final Map<String, String> NAME_TO_MSG = new FuzzyIndex<>();
+    private final TextIndex<String> CONTENT_INDEX = new TextIndex<>();
     private float lookupThr = 0f;
 
     protected MapLookupCommand(Type type, MainListener parent, String name) {
@@ -25,6 +28,7 @@ public class MapLookupCommand extends ComplexCommand {
         this.addSubCommand(new Get(parent, "*"));
         this.addSubCommand(new Save(parent, "save"));
         this.addSubCommand(new Remove(parent, "remove"));
+        this.addSubCommand(new Search(parent, "search"));
     }
 
     protected class Get extends Command {
@@ -53,6 +57,32 @@ public class MapLookupCommand extends ComplexCommand {
 
     }
 
+    protected class Search extends Command {
+
+        protected Search(MainListener parent, String name) {
+            super(null, parent, name);
+            setCooldown(5000);
+        }
+
+        @Override
+        public void execute(CommandParser parser) {
+            final String query = parser.readAll().trim();
+            if (query.isEmpty()) {
+                parser.sendResponse("Usage: !" + MapLookupCommand.this.name + " " + name + " <words>");
+                return;
+            }
+            final List<String> found = CONTENT_INDEX.search(query, 3);
+            if (found.isEmpty()) {
+                parser.sendResponse("Not found.");
+            } else {
+                final String best = found.get(0);
+                final String others = found.size() > 1 ? " (also: " + String.join(", ", found.subList(1, found.size())) + ")" : "";
+                parser.send(best + ": " + NAME_TO_MSG.get(best) + others);
+            }
+        }
+
+    }
+
     protected class Save extends Command {
 
         protected Save(MainListener parent, String name) {
@@ -69,7 +99,8 @@ public class MapLookupCommand extends ComplexCommand {
             } else {
                 final String content = parser.readAll().trim();
                 if (content.length() < 1) throw new CommandException("content must not be empty");
-                final String existing = NAME_TO_MSG.put(name, content);
+                NAME_TO_MSG.put(name, content);
+                CONTENT_INDEX.put(name, name + " " + content);
                 parser.sendResponse("Entry saved: " + name);
             }
         }
@@ -90,6 +121,7 @@ public class MapLookupCommand extends ComplexCommand {
                 parser.sendResponse("Usage: !" + MapLookupCommand.this.name + " " + name + " <name>");
             } else {
                 if (NAME_TO_MSG.remove(query) != null) {
+                    CONTENT_INDEX.remove(query);
                     parser.sendResponse("Entry removed: " + query);
                 } else {
                     parser.sendResponse("Not found.");
@@ -104,11 +136,13 @@ public class MapLookupCommand extends ComplexCommand {
         super.load(data);
         this.lookupThr = data.optFloat("lookupThr", 0f);
         this.NAME_TO_MSG.clear();
+        this.CONTENT_INDEX.clear();
         final JSONObject saved = data.getJSONObject("saved");
         final Iterator keys = saved.keys();
         while (keys.hasNext()) {
             final String key = keys.next().toString();
             NAME_TO_MSG.put(key, saved.getString(key));
+            CONTENT_INDEX.put(key, key + " " + saved.getString(key));
         }
     }
 
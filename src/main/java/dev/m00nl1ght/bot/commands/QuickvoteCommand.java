@@ -1,30 +1,29 @@
 package dev.m00nl1ght.bot.commands;
 
 import com.gikk.twirk.enums.USER_LEVEL;
-import com.gikk.twirk.events.TwirkListener;
-import com.gikk.twirk.types.twitchMessage.TwitchMessage;
 import dev.m00nl1ght.bot.CommandException;
 import dev.m00nl1ght.bot.CommandParser;
 import dev.m00nl1ght.bot.MainListener;
+import dev.m00nl1ght.bot.VoteEngine;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 
 public class QuickvoteCommand extends ComplexCommand {
 
     public static final Type TYPE = new Type("quickvote");
-    private static final int updateTick = 1000;
-    private static final int noticeMsgGap = 10;
+    private static final String[] DEFAULT_OPTIONS = new String[] {"VoteYea", "VoteNay"};
 
-    private int defaultDuration = 1000 * 30;
-    private VoteHandler activeVote = null;
+    private int defaultDuration = 30;
 
     protected QuickvoteCommand(Type type, MainListener parent, String name) {
         super(type, parent, name);
         this.addSubCommand(new Start(parent, "start"));
         this.addSubCommand(new Cancel(parent, "cancel"));
         this.addSubCommand(new End(parent, "end"));
+        this.addSubCommand(new Status(parent, "status"));
     }
 
     @Override
@@ -39,86 +38,6 @@ public class QuickvoteCommand extends ComplexCommand {
         data.put("defaultDuration", this.defaultDuration);
     }
 
-    private class VoteHandler extends Thread implements TwirkListener {
-
-        private int duration;
-        private boolean canceled;
-        private int msgSinceNotice = 0;
-        private long startTime;
-        private HashMap<String, Integer> votes = new HashMap<>();
-        private String[] options = new String[] {"VoteYea", "VoteNay"};
-
-        public VoteHandler(int duration) {
-            this.duration = duration;
-        }
-
-        @Override
-        public void run() {
-            startTime = System.currentTimeMillis();
-            parent.sendMessage("/me Quickvote started: Use the emotes VoteYea or VoteNay to vote. Time remaining: " + formatTime(duration));
-            parent.getBot().addIrcListener(this);
-            while (!canceled) {
-                int remaining = (int) (duration - (System.currentTimeMillis() - startTime));
-                if (remaining > 0) {
-                    if (msgSinceNotice >= noticeMsgGap) {
-                        parent.sendMessage("/me Quickvote active: Use the emotes VoteYea or VoteNay to vote. Time remaining: " + formatTime(remaining));
-                        msgSinceNotice = 0;
-                    }
-                    this.wait(updateTick);
-                } else {
-                    break;
-                }
-            }
-            parent.getBot().removeIrcListener(this);
-            activeVote = null;
-            if (!canceled) {
-                parent.sendMessage("/me Quickvote ended!");
-                this.wait(1000);
-                this.printResults();
-            }
-        }
-
-        @Override
-        public void onPrivMsg(TwitchMessage message) {
-            msgSinceNotice++;
-            for (int i = 0; i < options.length; i++) {
-                if (message.getContent().trim().startsWith(options[i])) {
-                    votes.put(message.getUser().getUserName(), i);
-                    return;
-                }
-            }
-        }
-
-        private void printResults() {
-            int[] res = new int[options.length];
-            for (int v : votes.values()) res[v]++;
-            String r = "/me Results: ";
-            for (int i = 0; i < res.length; i++) {
-                r += res[i] + "x " + options[i] + "  ";
-            }
-            parent.sendMessage(r);
-        }
-
-        private void cancel() {
-            this.canceled = true;
-        }
-
-        private void end() {
-            this.duration = 0;
-        }
-
-        private void wait(int millis) {
-            try {
-                Thread.sleep(millis);
-            } catch (InterruptedException e) {}
-        }
-
-        private String formatTime(int millis) {
-            return Integer.toString(millis/1000) + "s";
-        }
-
-    }
-
     protected class Start extends Command {
 
         protected Start(MainListener parent, String name) {
@@ -131,12 +50,11 @@ public class QuickvoteCommand extends ComplexCommand {
             if (d > 600 || d < 10) {
                 throw new CommandException("duration must be between 10s and 600s");
             }
-            if (activeVote != null) {
-                parser.sendResponse("There is already an active vote.");
-                return;
-            }
-            activeVote = new VoteHandler(d * 1000);
-            activeVote.start();
+            final List<String> options = new ArrayList<>();
+            String option;
+            while (!(option = parser.nextParam()).isEmpty()) options.add(option);
+            if (options.size() == 1) throw new CommandException("a vote needs at least 2 options");
+            parent.votes.start(options.isEmpty() ? DEFAULT_OPTIONS : options.toArray(new String[0]), d * 1000L);
         }
 
     }
@@ -149,12 +67,9 @@ public class QuickvoteCommand extends ComplexCommand {
 
         @Override
         public void execute(CommandParser parser) {
-            if (activeVote == null) {
-                parser.sendResponse("No active vote.");
-            } else {
-                activeVote.cancel();
-                parser.sendResponse("Canceled active quickvote.");
-            }
+            final VoteEngine.Poll poll = parent.votes.find(parser.nextParamInt(0));
+            poll.cancel();
+            parser.sendResponse("Canceled quickvote #" + poll.getId() + ".");
         }
 
     }
@@ -167,10 +82,26 @@ public class QuickvoteCommand extends ComplexCommand {
 
         @Override
         public void execute(CommandParser parser) {
-            if (activeVote == null) {
+            parent.votes.find(parser.nextParamInt(0)).end();
+        }
+
+    }
+
+    protected class Status extends Command {
+
+        protected Status(MainListener parent, String name) {
+            super(null, parent, name);
+        }
+
+        @Override
+        public void execute(CommandParser parser) {
+            if (parent.votes.getPolls().isEmpty()) {
                 parser.sendResponse("No active vote.");
-            } else {
-                activeVote.end();
+                return;
+            }
+            for (final VoteEngine.Poll poll : parent.votes.getPolls()) {
+                parser.sendResponse("Quickvote #" + poll.getId() + ": " + poll.results()
+                        + " (" + poll.getVoteCount() + " votes, " + poll.getRemaining() / 1000 + "s remaining)");
             }
         }
 
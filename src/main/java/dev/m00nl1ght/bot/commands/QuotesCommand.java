@@ -5,6 +5,7 @@ import dev.m00nl1ght.bot.CommandException;
 import dev.m00nl1ght.bot.CommandParser;
 import dev.m00nl1ght.bot.CommandPattern;
 import dev.m00nl1ght.bot.MainListener;
+import dev.m00nl1ght.bot.util.TextIndex;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -20,6 +21,7 @@ public class QuotesCommand extends ComplexCommand {
 
     protected CommandPattern basePattern;
     protected List<CommandPattern> quotes = new ArrayList<>();
+    protected final TextIndex<CommandPattern> index = new TextIndex<>();
 
     protected QuotesCommand(Command.Type type, MainListener parent, String name) {
         super(type, parent, name);
@@ -27,6 +29,7 @@ public class QuotesCommand extends ComplexCommand {
         this.addSubCommand(new Get(parent, "*"));
         this.addSubCommand(new Add(parent, "add"));
         this.addSubCommand(new Remove(parent, "remove"));
+        this.addSubCommand(new Search(parent, "search"));
     }
 
     @Override
@@ -35,7 +38,9 @@ public class QuotesCommand extends ComplexCommand {
         this.basePattern = CommandPattern.compile(data.getString("basePattern"));
         final JSONArray list = data.getJSONArray("quotes");
         for (int i = 0; i < list.length(); i++) {
-            quotes.add(CommandPattern.compile(list.getString(i)));
+            final CommandPattern quote = CommandPattern.compile(list.getString(i));
+            quotes.add(quote);
+            index.put(quote, quote.source());
         }
     }
 
@@ -112,8 +117,9 @@ public class QuotesCommand extends ComplexCommand {
 
         @Override
         public void execute(CommandParser parser) {
-            final String pattern = parser.readAll();
-            quotes.add(CommandPattern.compile(pattern));
+            final CommandPattern quote = CommandPattern.compile(parser.readAll());
+            quotes.add(quote);
+            index.put(quote, quote.source());
             parser.sendResponse("Added quote #" + (quotes.size()) + ".");
         }
 
@@ -134,7 +140,7 @@ public class QuotesCommand extends ComplexCommand {
                 try {
                     final int idx = Integer.parseInt(param) - 1;
                     if (idx < 0 || idx >= quotes.size()) throw new CommandException("invalid quote id");
-                    quotes.remove(idx);
+                    index.remove(quotes.remove(idx));
                     parser.sendResponse("Removed quote #" + (idx + 1) + ".");
                     return;
                 } catch (NumberFormatException e) {
@@ -147,4 +153,26 @@ public class QuotesCommand extends ComplexCommand {
 
     }
 
+    protected class Search extends Command {
+
+        protected Search(MainListener parent, String name) {
+            super(null, parent, name);
+            setCooldown(5000);
+        }
+
+        @Override
+        public void execute(CommandParser parser) {
+            final String query = parser.readAll().trim();
+            if (query.isEmpty()) throw new CommandException("missing search words");
+            final List<CommandPattern> found = index.search(query, 1);
+            if (found.isEmpty()) {
+                parser.sendResponse("No matching quote found.");
+            } else {
+                final CommandPattern pattern = found.get(0);
+                parser.send(basePattern.build(parser) + " " + pattern.build(parser) + " (#" + (quotes.indexOf(pattern) + 1) + ")");
+            }
+        }
+
+    }
+
 }
@@ -28,7 +28,7 @@ public class TimerCommand extends ComplexCommand {
 
     private static CommandPattern.Segment elapsedTimeSegment(String arg) {
         if (arg.equals("t") || arg.equals("time"))
-            return (p) -> ((TimerCommand) p.getCommand()).timeString();
+            return CommandPattern.timed((p) -> ((TimerCommand) p.getCommand()).timeString());
         return null;
     }
 
@@ -136,6 +136,7 @@ public class TimerCommand extends ComplexCommand {
 
         @Override
         public void execute(CommandParser parser) {
+            pattern.invalidate();
             if (startTime == 0) {
                 startTime = System.currentTimeMillis();
                 parser.sendResponse("Timer started.");
@@ -159,6 +160,7 @@ public class TimerCommand extends ComplexCommand {
             if (startTime != 0) {
                 parser.sendResponse("Timer stopped: " + timeString());
                 startTime = 0;
+                pattern.invalidate();
             } else {
                 parser.sendResponse("No timer active.");
             }
@@ -3,19 +3,28 @@ package dev.m00nl1ght.bot.commands;
 import dev.m00nl1ght.bot.CommandException;
 import dev.m00nl1ght.bot.CommandParser;
 import dev.m00nl1ght.bot.MainListener;
+import dev.m00nl1ght.bot.util.HttpClient;
+import dev.m00nl1ght.bot.util.LruCache;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
-import java.util.stream.Collectors;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class TranslateCommand extends Command {
 
     public static final Type TYPE = new Type("translate");
+    private static final Map<String, String> HEADERS = Collections.singletonMap("User-Agent", "Mozilla/5.0");
+    private static final LruCache<String, String> CACHE = new LruCache<>(512, 6 * 3600000L);
+    private static final Map<String, CompletableFuture<String>> IN_FLIGHT = new ConcurrentHashMap<>();
+    private static final AtomicLong COLLAPSED = new AtomicLong();
     private String langFrom = "";
     private String langTo = "";
 
@@ -38,23 +47,63 @@ public class TranslateCommand extends Command {
     private String translate(String text) {
         String api = parent.getGoogleAPI();
         if (api.isEmpty()) throw new CommandException("api not supported");
+        final String key = langFrom + '|' + langTo + '|' + text.trim().replaceAll("\\s+", " ");
+        final String cached = CACHE.get(key);
+        if (cached != null) return cached;
+
+        // identical requests running at the same time share one call to the script
+        final CompletableFuture<String> future = new CompletableFuture<>();
+        final CompletableFuture<String> running = IN_FLIGHT.putIfAbsent(key, future);
+        if (running != null) {
+            COLLAPSED.incrementAndGet();
+            return await(running);
+        }
+
+        HttpClient.SHARED.getAsync(buildUrl(api, text), HEADERS).whenComplete((response, error) -> {
+            try {
+                if (error != null) throw error;
+                final String result = response.getBodyOrThrow().replaceAll("\\R", "");
+                if (!result.isEmpty()) CACHE.put(key, result);
+                future.complete(result);
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                IN_FLIGHT.remove(key, future);
+            }
+        });
+        return await(future);
+    }
+
+    private String buildUrl(String api, String text) {
         try {
-            String urlStr = "https://script.google.com/macros/s/" + api + "/exec" +
+            return "https://script.google.com/macros/s/" + api + "/exec" +
                     "?q=" + URLEncoder.encode(text, "UTF-8") +
                     "&target=" + langTo +
                     "&source=" + langFrom;
-            URL url = new URL(urlStr);
-            HttpURLConnection con = (HttpURLConnection) url.openConnection();
-            con.setRequestProperty("User-Agent", "Mozilla/5.0");
-            BufferedReader in = new BufferedReader(new InputStreamReader(con.getInputStream()));
-            String response = in.lines().collect(Collectors.joining());
-            in.close();
-            return response;
-        } catch (Exception e) {
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String await(CompletableFuture<String> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof HttpClient.CircuitOpenException)
+                throw new CommandException("Translation is currently unavailable, try again later.");
             throw new CommandException("Translation failed.");
         }
     }
 
+    public static Map<String, Number> cacheStats() {
+        final Map<String, Number> stats = new LinkedHashMap<>();
+        stats.put("translate_cached", CACHE.size());
+        stats.put("translate_hits", CACHE.getHits());
+        stats.put("translate_misses", CACHE.getMisses());
+        stats.put("translate_collapsed", COLLAPSED.get());
+        return stats;
+    }
+
     @Override
     public void load(JSONObject data) throws JSONException {
         super.load(data);
@@ -73,6 +73,8 @@ public class CoreAwsManagement {
                 else answer.getTriggers().add(Trigger.fromPattern(next));
             }
 
+            parser.getParent().answersManager.invalidate();
+
             parser.sendResponse("Updated triggers for answer " + name);
         }
 
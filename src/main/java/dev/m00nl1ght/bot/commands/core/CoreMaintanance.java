@@ -1,13 +1,27 @@
 package dev.m00nl1ght.bot.commands.core;
 
+import com.gikk.twirk.enums.USER_LEVEL;
+import dev.m00nl1ght.bot.ChatArchive;
 import dev.m00nl1ght.bot.CommandException;
 import dev.m00nl1ght.bot.CommandParser;
 import dev.m00nl1ght.bot.Logger;
 import dev.m00nl1ght.bot.MainListener;
+import dev.m00nl1ght.bot.commands.TranslateCommand;
+import dev.m00nl1ght.bot.listener.EmoteStatsListener;
 import dev.m00nl1ght.bot.listener.MsgListener;
 import dev.m00nl1ght.bot.listener.MsgListenerTypes;
-
+import dev.m00nl1ght.bot.util.CircuitBreaker;
+import dev.m00nl1ght.bot.util.HttpClient;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 public class CoreMaintanance {
 
@@ -22,6 +36,9 @@ public class CoreMaintanance {
         core.addSubCommand(new CleanLog(core.parent, "log_clean"));
         core.addSubCommand(new AddListener(core.parent, "add_listener"));
         core.addSubCommand(new RemoveListener(core.parent, "remove_listener"));
+        core.addSubCommand(new History(core.parent, "history"));
+        core.addSubCommand(new HistoryRange(core.parent, "history_range"));
+        core.addSubCommand(new Telemetry(core.parent, "telemetry"));
     }
 
     static class Stop extends CoreSubCommand {
@@ -97,11 +114,7 @@ public class CoreMaintanance {
         @Override
         public void execute(CommandParser parser) {
             parser.sendResponse("Disconnecting...");
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {
-            }
-            parent.exit();
+            parent.getTimer().schedule(parent::exit, 1, TimeUnit.SECONDS);
         }
 
     }
@@ -192,4 +205,96 @@ public class CoreMaintanance {
 
     }
 
+    static class History extends CoreSubCommand {
+
+        private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("HH:mm").withZone(ZoneId.systemDefault());
+
+        protected History(MainListener parent, String name) {
+            super(parent, name);
+            this.perm = USER_LEVEL.MOD.value;
+        }
+
+        @Override
+        public void execute(CommandParser parser) {
+            final String user = parser.nextParam().replace("@", "");
+            if (user.isEmpty()) throw new CommandException("missing user");
+            final int n = parser.nextParamInt(5);
+            if (n < 1 || n > 20) throw new CommandException("count must be between 1 and 20");
+            final List<ChatArchive.Message> history = parent.archive.history(user, n);
+            if (history.isEmpty()) {
+                parser.sendResponse("No messages from " + user + " found.");
+                return;
+            }
+            final StringBuilder out = new StringBuilder();
+            for (int i = history.size() - 1; i >= 0; i--) {
+                final ChatArchive.Message msg = history.get(i);
+                out.append('[').append(FORMAT.format(Instant.ofEpochMilli(msg.getTime()))).append("] ").append(msg.getContent());
+                if (i > 0) out.append(" | ");
+            }
+            parser.sendResponse(out.length() > 450 ? "..." + out.substring(out.length() - 447) : out.toString());
+        }
+
+    }
+
+    static class HistoryRange extends CoreSubCommand {
+
+        protected HistoryRange(MainListener parent, String name) {
+            super(parent, name);
+            this.perm = USER_LEVEL.MOD.value;
+        }
+
+        @Override
+        public void execute(CommandParser parser) {
+            final int ago = parser.nextParamInt(0);
+            if (ago == 0) {
+                parser.sendResponse("Usage: !mb history_range <minutes ago> [minutes]");
+                return;
+            }
+            final int span = parser.nextParamInt(5);
+            if (ago < 1 || span < 1 || span > ago) throw new CommandException("invalid time range");
+            final long from = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(ago);
+            final List<ChatArchive.Message> range = parent.archive.range(from, from + TimeUnit.MINUTES.toMillis(span), 20);
+            if (range.isEmpty()) {
+                parser.sendResponse("No messages in that time range.");
+                return;
+            }
+            final StringBuilder out = new StringBuilder();
+            for (final ChatArchive.Message msg : range) {
+                if (out.length() > 0) out.append(" | ");
+                out.append('[').append(History.FORMAT.format(Instant.ofEpochMilli(msg.getTime()))).append("] ")
+                        .append(msg.getUser()).append(": ").append(msg.getContent());
+            }
+            parser.sendResponse(out.length() > 450 ? out.substring(0, 447) + "..." : out.toString());
+        }
+
+    }
+
+    static class Telemetry extends CoreSubCommand {
+
+        protected Telemetry(MainListener parent, String name) {
+            super(parent, name);
+        }
+
+        @Override
+        public void execute(CommandParser parser) {
+            final Map<String, Number> all = new LinkedHashMap<>(parent.telemetry.gauges());
+            all.putAll(TranslateCommand.cacheStats());
+            all.put("archive_messages", parent.archive.getMessageCount());
+            all.put("archive_segments", parent.archive.getSegmentCount());
+            final MsgListener emotes = parent.msgListeners.get(EmoteStatsListener.ID);
+            if (emotes instanceof EmoteStatsListener) all.putAll(((EmoteStatsListener) emotes).gauges());
+            parent.getBot().getStageStats().forEach((stage, stats) -> {
+                all.put(stage + "_avg_us", stats.getAverageMicros());
+                all.put(stage + "_max_us", stats.getMaxMicros());
+            });
+            final String gauges = all.entrySet().stream()
+                    .map(e -> e.getKey() + "=" + e.getValue()).collect(Collectors.joining(", "));
+            final String circuits = HttpClient.SHARED.getCircuitStates().entrySet().stream()
+                    .filter(e -> e.getValue() != CircuitBreaker.State.CLOSED)
+                    .map(e -> e.getKey() + "=" + e.getValue()).collect(Collectors.joining(", "));
+            parser.sendResponse("Telemetry: " + gauges + (circuits.isEmpty() ? "" : " | circuits: " + circuits));
+        }
+
+    }
+
 }
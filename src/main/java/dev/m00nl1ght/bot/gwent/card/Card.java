@@ -26,6 +26,23 @@ public class Card {
 
     long lastQuery = 0L;
 
+    public Card(String id, String name, int power, int armor, int provision, String ability, String faction,
+                String set, Color color, Type type, String rarity, String flavor, List<String> categories) {
+        this.id = id;
+        this.name = name;
+        this.power = power;
+        this.armor = armor;
+        this.provision = provision;
+        this.ability = ability;
+        this.faction = faction;
+        this.set = set;
+        this.color = color;
+        this.type = type;
+        this.rarity = rarity;
+        this.flavor = flavor;
+        this.categories = categories;
+    }
+
     public Card(JSONObject json) {
         this.id = json.getString("id");
         this.name = json.getString("name");
@@ -27,6 +27,10 @@ public class CardDatabase {
         }
     }
 
+    protected CardDatabase(String gameVersion) {
+        this.gameVersion = gameVersion;
+    }
+
     public CardDatabase(JSONObject json) {
 
         this.gameVersion = json.getString("gameVersion");
@@ -48,12 +52,12 @@ public class CardDatabase {
     public JSONObject toJson() {
 
         final JSONArray cardData = new JSONArray();
-        for (final Card card : cards.values()) {
+        for (final Card card : getCards().values()) {
             cardData.put(card.toJson());
         }
 
         final JSONArray keywordData = new JSONArray();
-        for (final Map.Entry<String, String> keyword : keywords.entrySet()) {
+        for (final Map.Entry<String, String> keyword : getKeywords().entrySet()) {
             final JSONObject data = new JSONObject();
             data.put("name", keyword.getKey());
             data.put("description", keyword.getValue());
@@ -61,7 +65,7 @@ public class CardDatabase {
         }
 
         final JSONObject json = new JSONObject();
-        json.put("gameVersion", gameVersion);
+        json.put("gameVersion", getGameVersion());
         json.put("cards", cardData);
         json.put("keywords", keywordData);
         return json;
@@ -0,0 +1,222 @@
+package dev.m00nl1ght.bot.gwent.card;
+
+import dev.m00nl1ght.bot.util.BigramMatcher;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Converts a card database into the binary format read by {@link MappedCardDatabase}.
+ *
+ * Layout (big endian, all offsets absolute):
+ * <pre>
+ * header    MAGIC, VERSION, gameVersion ref, then (count, offset) for cards, keywords, card search, keyword search,
+ *           then the offsets of the card and keyword bigram indices
+ * cards     fixed width records sorted by id, see {@link MappedCardDatabase#CARD_RECORD}
+ * keywords  (name ref, description ref) sorted by name
+ * search    (normalized key ref, record index) sorted by key, for cards and keywords
+ * bigrams   per search section: gram count, max key length, (gram, postings offset, postings count) sorted by gram,
+ *           (max length + 2) start indices into the slots sorted by key length, those slots,
+ *           then the postings as (slot, occurrences) pairs, see {@link dev.m00nl1ght.bot.util.BigramMatcher}
+ * category  per card: count followed by string refs
+ * strings   deduplicated, each entry is a length followed by its UTF-8 bytes
+ * </pre>
+ */
+public class CardDatabaseCompiler {
+
+    private final Map<String, Integer> stringRefs = new HashMap<>();
+    private final ByteArrayOutputStream stringData = new ByteArrayOutputStream();
+    private final DataOutputStream stringOut = new DataOutputStream(stringData);
+
+    private CardDatabaseCompiler() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: CardDatabaseCompiler <gwent_database.json> <gwent_database.bin>");
+            return;
+        }
+
+        compile(new File(args[0]), new File(args[1]));
+    }
+
+    public static void compile(File jsonFile, File target) throws IOException {
+        try (FileReader reader = new FileReader(jsonFile)) {
+            compile(new CardDatabase(new JSONObject(new JSONTokener(reader))), target);
+        }
+    }
+
+    public static void compile(CardDatabase db, File target) throws IOException {
+        final File tmp = new File(target.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            new CardDatabaseCompiler().write(db, out);
+        }
+
+        if (target.exists() && !target.delete()) throw new IOException("Failed to replace " + target);
+        if (!tmp.renameTo(target)) throw new IOException("Failed to move " + tmp + " to " + target);
+    }
+
+    public static String searchKey(String str) {
+        return str.replaceAll("[^A-Za-z ]", "").toLowerCase();
+    }
+
+    private void write(CardDatabase db, DataOutputStream out) throws IOException {
+
+        final List<Card> cards = new ArrayList<>(db.getCards().values());
+        cards.sort(Comparator.comparing(c -> c.id));
+        final Map<String, Integer> cardIdx = new HashMap<>();
+        for (int i = 0; i < cards.size(); i++) cardIdx.put(cards.get(i).id, i);
+
+        final List<Map.Entry<String, String>> keywords = new ArrayList<>(db.getKeywords().entrySet());
+        keywords.sort(Map.Entry.comparingByKey());
+
+        final Map<String, Integer> cardSearch = new TreeMap<>();
+        for (final Card card : db.getCards().values()) {
+            final int idx = cardIdx.get(card.id);
+            cardSearch.put(searchKey(card.name), idx);
+            for (final String split : card.name.split(" ")) {
+                final String splitKey = searchKey(split);
+                if (splitKey.length() < 4) continue;
+                cardSearch.put(splitKey, idx);
+            }
+        }
+
+        final Map<String, Integer> keywordSearch = new TreeMap<>();
+        for (int i = 0; i < keywords.size(); i++) {
+            keywordSearch.put(searchKey(keywords.get(i).getKey()), i);
+        }
+
+        int categoryBytes = 0;
+        for (final Card card : cards) categoryBytes += 4 + 4 * card.categories.size();
+
+        final int cardsOffset = MappedCardDatabase.HEADER_SIZE;
+        final int keywordsOffset = cardsOffset + cards.size() * MappedCardDatabase.CARD_RECORD;
+        final int cardSearchOffset = keywordsOffset + keywords.size() * MappedCardDatabase.PAIR_RECORD;
+        final int keywordSearchOffset = cardSearchOffset + cardSearch.size() * MappedCardDatabase.PAIR_RECORD;
+        final int cardGramsOffset = keywordSearchOffset + keywordSearch.size() * MappedCardDatabase.PAIR_RECORD;
+        final byte[] cardGrams = bigramIndex(cardSearch.keySet(), cardGramsOffset);
+        final int keywordGramsOffset = cardGramsOffset + cardGrams.length;
+        final byte[] keywordGrams = bigramIndex(keywordSearch.keySet(), keywordGramsOffset);
+        final int categoriesOffset = keywordGramsOffset + keywordGrams.length;
+        final int stringsOffset = categoriesOffset + categoryBytes;
+
+        out.writeInt(MappedCardDatabase.MAGIC);
+        out.writeInt(MappedCardDatabase.VERSION);
+        out.writeInt(stringsOffset + ref(db.getGameVersion()));
+        out.writeInt(cards.size());
+        out.writeInt(cardsOffset);
+        out.writeInt(keywords.size());
+        out.writeInt(keywordsOffset);
+        out.writeInt(cardSearch.size());
+        out.writeInt(cardSearchOffset);
+        out.writeInt(keywordSearch.size());
+        out.writeInt(keywordSearchOffset);
+        out.writeInt(cardGramsOffset);
+        out.writeInt(keywordGramsOffset);
+
+        int categoryPos = categoriesOffset;
+        for (final Card card : cards) {
+            out.writeInt(stringsOffset + ref(card.id));
+            out.writeInt(stringsOffset + ref(card.name));
+            out.writeInt(card.power);
+            out.writeInt(card.armor);
+            out.writeInt(card.provision);
+            out.writeInt(stringsOffset + ref(card.ability));
+            out.writeInt(stringsOffset + ref(card.faction));
+            out.writeInt(stringsOffset + ref(card.set));
+            out.writeInt(stringsOffset + ref(card.rarity));
+            out.writeInt(card.flavor == null ? -1 : stringsOffset + ref(card.flavor));
+            out.writeInt(categoryPos);
+            out.writeByte(card.color.ordinal());
+            out.writeByte(card.type.ordinal());
+            out.writeShort(0);
+            categoryPos += 4 + 4 * card.categories.size();
+        }
+
+        for (final Map.Entry<String, String> keyword : keywords) {
+            out.writeInt(stringsOffset + ref(keyword.getKey()));
+            out.writeInt(stringsOffset + ref(keyword.getValue()));
+        }
+
+        for (final Map.Entry<String, Integer> entry : cardSearch.entrySet()) {
+            out.writeInt(stringsOffset + ref(entry.getKey()));
+            out.writeInt(entry.getValue());
+        }
+
+        for (final Map.Entry<String, Integer> entry : keywordSearch.entrySet()) {
+            out.writeInt(stringsOffset + ref(entry.getKey()));
+            out.writeInt(entry.getValue());
+        }
+
+        out.write(cardGrams);
+        out.write(keywordGrams);
+
+        for (final Card card : cards) {
+            out.writeInt(card.categories.size());
+            for (final String category : card.categories) out.writeInt(stringsOffset + ref(category));
+        }
+
+        stringOut.flush();
+        stringData.writeTo(out);
+    }
+
+    private static byte[] bigramIndex(Collection<String> keys, int offset) throws IOException {
+        final Map<Integer, List<int[]>> postings = new TreeMap<>();
+        final List<Integer> byLength = new ArrayList<>();
+        int maxLength = 0, slot = 0;
+        for (final String key : keys) {
+            for (final Map.Entry<Integer, Integer> gram : BigramMatcher.grams(key).entrySet()) {
+                postings.computeIfAbsent(gram.getKey(), g -> new ArrayList<>()).add(new int[]{slot, gram.getValue()});
+            }
+            maxLength = Math.max(maxLength, key.length());
+            byLength.add(slot++);
+        }
+
+        final List<String> keyList = new ArrayList<>(keys);
+        byLength.sort(Comparator.comparingInt(s -> keyList.get(s).length()));
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(postings.size());
+        out.writeInt(maxLength);
+
+        int postingsPos = offset + 8 + postings.size() * 12 + (maxLength + 2) * 4 + keys.size() * 4;
+        for (final Map.Entry<Integer, List<int[]>> entry : postings.entrySet()) {
+            out.writeInt(entry.getKey());
+            out.writeInt(postingsPos);
+            out.writeInt(entry.getValue().size());
+            postingsPos += entry.getValue().size() * 8;
+        }
+
+        int start = 0;
+        for (int length = 0; length <= maxLength + 1; length++) {
+            while (start < byLength.size() && keyList.get(byLength.get(start)).length() < length) start++;
+            out.writeInt(start);
+        }
+        for (final int s : byLength) out.writeInt(s);
+
+        for (final List<int[]> list : postings.values()) {
+            for (final int[] posting : list) {
+                out.writeInt(posting[0]);
+                out.writeInt(posting[1]);
+            }
+        }
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private int ref(String str) throws IOException {
+        final Integer existing = stringRefs.get(str);
+        if (existing != null) return existing;
+        final int pos = stringOut.size();
+        final byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        stringOut.writeInt(bytes.length);
+        stringOut.write(bytes);
+        stringRefs.put(str, pos);
+        return pos;
+    }
+
+}
@@ -0,0 +1,319 @@
+package dev.m00nl1ght.bot.gwent.card;
+
+import dev.m00nl1ght.bot.util.BigramMatcher;
+import dev.m00nl1ght.bot.util.FuzzyMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Card database backed by a memory-mapped file written by {@link CardDatabaseCompiler}.
+ * Records are only decoded when accessed, cards are kept once decoded so their query cooldown persists.
+ * The search maps use the bigram indices stored in the file for fuzzy lookups, so they don't need to be copied to the heap.
+ */
+public class MappedCardDatabase extends CardDatabase {
+
+    static final int MAGIC = 0x47574442;
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 13 * 4;
+    static final int CARD_RECORD = 12 * 4;
+    static final int PAIR_RECORD = 2 * 4;
+
+    private final MappedByteBuffer buffer;
+    private final Card[] decoded;
+    private final int cardCount, cardsOffset;
+    private final int keywordCount, keywordsOffset;
+    private final int cardSearchCount, cardSearchOffset;
+    private final int keywordSearchCount, keywordSearchOffset;
+    private final int cardGramsOffset, keywordGramsOffset;
+
+    private MappedCardDatabase(MappedByteBuffer buffer) {
+        super(readString(buffer, buffer.getInt(8)));
+        this.buffer = buffer;
+        this.cardCount = buffer.getInt(12);
+        this.cardsOffset = buffer.getInt(16);
+        this.keywordCount = buffer.getInt(20);
+        this.keywordsOffset = buffer.getInt(24);
+        this.cardSearchCount = buffer.getInt(28);
+        this.cardSearchOffset = buffer.getInt(32);
+        this.keywordSearchCount = buffer.getInt(36);
+        this.keywordSearchOffset = buffer.getInt(40);
+        this.cardGramsOffset = buffer.getInt(44);
+        this.keywordGramsOffset = buffer.getInt(48);
+        this.decoded = new Card[cardCount];
+    }
+
+    public static MappedCardDatabase open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+                throw new IOException("Not a card database file: " + file);
+            if (buffer.getInt(4) != VERSION)
+                throw new IOException("Unsupported card database version " + buffer.getInt(4) + " in " + file);
+            return new MappedCardDatabase(buffer);
+        }
+    }
+
+    /**
+     * Whether the given file is a card database in the format this version reads.
+     */
+    public static boolean isCurrent(File file) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            return raf.length() >= HEADER_SIZE && raf.readInt() == MAGIC && raf.readInt() == VERSION;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public Map<String, Card> getCards() {
+        return new RecordMap<Card>(cardCount) {
+            @Override protected String key(int idx) {return readString(buffer, buffer.getInt(cardsOffset + idx * CARD_RECORD));}
+            @Override protected Card value(int idx) {return card(idx);}
+        };
+    }
+
+    @Override
+    public Map<String, String> getKeywords() {
+        return new RecordMap<String>(keywordCount) {
+            @Override protected String key(int idx) {return keywordName(idx);}
+            @Override protected String value(int idx) {return keywordDescription(idx);}
+        };
+    }
+
+    public FuzzyMap<Card> getCardSearch() {
+        return new SearchMap<Card>(cardSearchCount, cardGramsOffset) {
+            @Override protected String key(int idx) {return readString(buffer, buffer.getInt(cardSearchOffset + idx * PAIR_RECORD));}
+            @Override protected Card value(int idx) {return card(buffer.getInt(cardSearchOffset + idx * PAIR_RECORD + 4));}
+        };
+    }
+
+    public FuzzyMap<String> getKeywordSearch() {
+        return new SearchMap<String>(keywordSearchCount, keywordGramsOffset) {
+            @Override protected String key(int idx) {return readString(buffer, buffer.getInt(keywordSearchOffset + idx * PAIR_RECORD));}
+            @Override protected String value(int idx) {
+                final int kw = buffer.getInt(keywordSearchOffset + idx * PAIR_RECORD + 4);
+                return keywordName(kw) + " -> " + keywordDescription(kw);
+            }
+        };
+    }
+
+    private String keywordName(int idx) {
+        return readString(buffer, buffer.getInt(keywordsOffset + idx * PAIR_RECORD));
+    }
+
+    private String keywordDescription(int idx) {
+        return readString(buffer, buffer.getInt(keywordsOffset + idx * PAIR_RECORD + 4));
+    }
+
+    private Card card(int idx) {
+        final Card existing = decoded[idx];
+        if (existing != null) return existing;
+        final int pos = cardsOffset + idx * CARD_RECORD;
+        final int flavorRef = buffer.getInt(pos + 36);
+        final int categoryPos = buffer.getInt(pos + 40);
+        final int categoryCount = buffer.getInt(categoryPos);
+        final List<String> categories = new ArrayList<>(categoryCount);
+        for (int i = 0; i < categoryCount; i++) categories.add(readString(buffer, buffer.getInt(categoryPos + 4 + i * 4)));
+        final Card card = new Card(
+                readString(buffer, buffer.getInt(pos)),
+                readString(buffer, buffer.getInt(pos + 4)),
+                buffer.getInt(pos + 8),
+                buffer.getInt(pos + 12),
+                buffer.getInt(pos + 16),
+                readString(buffer, buffer.getInt(pos + 20)),
+                readString(buffer, buffer.getInt(pos + 24)),
+                readString(buffer, buffer.getInt(pos + 28)),
+                Card.Color.values()[buffer.get(pos + 44)],
+                Card.Type.values()[buffer.get(pos + 45)],
+                readString(buffer, buffer.getInt(pos + 32)),
+                flavorRef < 0 ? null : readString(buffer, flavorRef),
+                Collections.unmodifiableList(categories));
+        decoded[idx] = card;
+        return card;
+    }
+
+    private static String readString(ByteBuffer buffer, int ref) {
+        final int length = buffer.getInt(ref);
+        final byte[] bytes = new byte[length];
+        final ByteBuffer view = buffer.duplicate();
+        view.position(ref + 4);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Search section with a bigram index, see {@link CardDatabaseCompiler} for its layout.
+     */
+    private abstract class SearchMap<V> extends RecordMap<V> implements FuzzyMap<V> {
+
+        private final int gramCount, maxLength, gramsPos, lengthsPos, slotsPos;
+
+        private final BigramMatcher matcher = new BigramMatcher() {
+            @Override protected int slotBound() {return size();}
+            @Override protected String key(int slot) {return SearchMap.this.key(slot);}
+            @Override protected int maxLength() {return maxLength;}
+
+            @Override
+            protected void postings(int gram, Sink sink) {
+                int lo = 0, hi = gramCount - 1;
+                while (lo <= hi) {
+                    final int mid = (lo + hi) >>> 1;
+                    final int pos = gramsPos + mid * 12;
+                    final int cmp = Integer.compare(buffer.getInt(pos), gram);
+                    if (cmp < 0) lo = mid + 1;
+                    else if (cmp > 0) hi = mid - 1;
+                    else {
+                        final int postings = buffer.getInt(pos + 4);
+                        final int count = buffer.getInt(pos + 8);
+                        for (int i = 0; i < count; i++) sink.accept(buffer.getInt(postings + i * 8), buffer.getInt(postings + i * 8 + 4));
+                        return;
+                    }
+                }
+            }
+
+            @Override
+            protected void slotsOfLength(int length, Sink sink) {
+                if (length > maxLength) return;
+                final int end = buffer.getInt(lengthsPos + (length + 1) * 4);
+                for (int i = buffer.getInt(lengthsPos + length * 4); i < end; i++) sink.accept(buffer.getInt(slotsPos + i * 4), 1);
+            }
+        };
+
+        private SearchMap(int size, int gramsOffset) {
+            super(size);
+            this.gramCount = buffer.getInt(gramsOffset);
+            this.maxLength = buffer.getInt(gramsOffset + 4);
+            this.gramsPos = gramsOffset + 8;
+            this.lengthsPos = gramsPos + gramCount * 12;
+            this.slotsPos = lengthsPos + (maxLength + 2) * 4;
+        }
+
+        @Override
+        public Optional<V> findMatch(String query, double threshold) {
+            final V ret = get(query);
+            if (ret != null) return Optional.of(ret);
+            final String key = matcher.findBest(query, threshold);
+            return key == null ? Optional.empty() : Optional.ofNullable(get(key));
+        }
+
+        @Override
+        public Optional<String> findMatchKey(String query, double threshold) {
+            if (containsKey(query)) return Optional.of(query);
+            return Optional.ofNullable(matcher.findBest(query, threshold));
+        }
+
+    }
+
+    /**
+     * Read-only map view over a section of records sorted by key, lookups use binary search.
+     */
+    private static abstract class RecordMap<V> extends AbstractMap<String, V> {
+
+        private final int size;
+
+        private RecordMap(int size) {
+            this.size = size;
+        }
+
+        protected abstract String key(int idx);
+
+        protected abstract V value(int idx);
+
+        private int find(Object key) {
+            if (!(key instanceof String)) return -1;
+            int lo = 0, hi = size - 1;
+            while (lo <= hi) {
+                final int mid = (lo + hi) >>> 1;
+                final int cmp = key(mid).compareTo((String) key);
+                if (cmp < 0) lo = mid + 1;
+                else if (cmp > 0) hi = mid - 1;
+                else return mid;
+            }
+            return -1;
+        }
+
+        @Override
+        public V get(Object key) {
+            final int idx = find(key);
+            return idx < 0 ? null : value(idx);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return find(key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Set<Entry<String, V>> entrySet() {
+            return new AbstractSet<Entry<String, V>>() {
+                @Override
+                public Iterator<Entry<String, V>> iterator() {
+                    return new Iterator<Entry<String, V>>() {
+                        private int next = 0;
+                        @Override public boolean hasNext() {return next < size;}
+                        @Override public Entry<String, V> next() {
+                            if (next >= size) throw new NoSuchElementException();
+                            return new LazyEntry(next++);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+
+        private class LazyEntry implements Entry<String, V> {
+
+            private final int idx;
+
+            private LazyEntry(int idx) {
+                this.idx = idx;
+            }
+
+            @Override
+            public String getKey() {
+                return key(idx);
+            }
+
+            @Override
+            public V getValue() {
+                return value(idx);
+            }
+
+            @Override
+            public V setValue(V value) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public boolean equals(Object o) {
+                if (!(o instanceof Entry)) return false;
+                final Entry<?, ?> e = (Entry<?, ?>) o;
+                return getKey().equals(e.getKey()) && Objects.equals(getValue(), e.getValue());
+            }
+
+            @Override
+            public int hashCode() {
+                return getKey().hashCode() ^ Objects.hashCode(getValue());
+            }
+
+        }
+
+    }
+
+}
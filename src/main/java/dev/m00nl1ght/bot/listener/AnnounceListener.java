@@ -0,0 +1,92 @@
+package dev.m00nl1ght.bot.listener;
+
+import com.gikk.twirk.types.twitchMessage.TwitchMessage;
+import dev.m00nl1ght.bot.CommandException;
+import dev.m00nl1ght.bot.MainListener;
+import dev.m00nl1ght.bot.util.HashedWheelTimer;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Posts a message at a fixed interval, but only if enough chat messages were sent since the last one.
+ */
+public class AnnounceListener implements MsgListener {
+
+    public static final String ID = "announce";
+
+    private String name;
+    private int intervalMins = 15;
+    private int minMessages = 10;
+    private String text;
+    private final AtomicInteger messages = new AtomicInteger();
+    private HashedWheelTimer.Timeout timeout;
+
+    @Override
+    public boolean onMsg(TwitchMessage msg) {
+        messages.incrementAndGet();
+        return false;
+    }
+
+    @Override
+    public void onAdded(MainListener main) {
+        if (timeout != null) timeout.cancel();
+        timeout = main.getTimer().scheduleAtFixedRate(() -> {
+            if (messages.get() < minMessages) return;
+            messages.set(0);
+            main.sendMessage(text);
+        }, intervalMins, intervalMins, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void onRemoved() {
+        if (timeout != null) timeout.cancel();
+        timeout = null;
+    }
+
+    @Override
+    public JSONObject save() throws JSONException {
+        final JSONObject object = new JSONObject();
+        object.put("name", name);
+        object.put("intervalMins", intervalMins);
+        object.put("minMessages", minMessages);
+        object.put("text", text);
+        return object;
+    }
+
+    @Override
+    public void load(JSONObject data) throws JSONException {
+        name = data.getString("name");
+        intervalMins = data.optInt("intervalMins", intervalMins);
+        minMessages = data.optInt("minMessages", minMessages);
+        text = data.getString("text");
+    }
+
+    @Override
+    public String getName() {
+        return "announce_" + name;
+    }
+
+    @Override
+    public String getType() {
+        return ID;
+    }
+
+    @Override
+    public void fromCommand(String[] args) {
+        if (args.length < 4) throw new CommandException("usage: <name> <interval mins> <min messages> <text>");
+        try {
+            intervalMins = Integer.parseInt(args[1]);
+            minMessages = Integer.parseInt(args[2]);
+        } catch (NumberFormatException e) {
+            throw new CommandException("Invalid argument: must be a number");
+        }
+        if (intervalMins < 1) throw new CommandException("interval must be at least 1 minute");
+        name = args[0];
+        text = String.join(" ", Arrays.copyOfRange(args, 3, args.length));
+    }
+
+}
@@ -0,0 +1,178 @@
+package dev.m00nl1ght.bot.listener;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Distinct recent chatters keyed by user id, ordered by their last message.
+ * Every message is appended to an activity log sorted by time, only the latest entry of each user is live.
+ * Touching a user and expiring idle users are amortized O(1), the number of users kept is bounded by the capacity,
+ * dropping the least recently active first. Picking a random user within a window finds the start of the window
+ * with a binary search and then samples live entries after it.
+ */
+public class ChatterRegistry {
+
+    private static final int MAX_PICK_ATTEMPTS = 16;
+
+    private final Map<Long, Chatter> byId = new HashMap<>();
+    private Chatter[] log = new Chatter[64];
+    private long[] times = new long[64];
+    private int start, end;
+    private int capacity;
+    private long idleTimeout;
+
+    public ChatterRegistry(int capacity, long idleTimeout) {
+        this.capacity = Math.max(1, capacity);
+        this.idleTimeout = idleTimeout;
+    }
+
+    public synchronized void touch(long id, String name, long now) {
+        Chatter chatter = byId.get(id);
+        if (chatter == null) {
+            if (byId.size() >= capacity) remove(oldest());
+            chatter = new Chatter(id);
+            byId.put(id, chatter);
+        } else {
+            log[chatter.pos] = null;
+        }
+
+        chatter.name = name;
+        chatter.lastSeen = now;
+        append(chatter, now);
+        expire(now);
+    }
+
+    /**
+     * Picks a uniformly random user among those active within the idle timeout.
+     */
+    public String getRandom(long now) {
+        return getRandom(now, idleTimeout);
+    }
+
+    /**
+     * Picks a uniformly random user among those active within the given window.
+     * Stale log entries are rejected, if that happens too often the window is compacted so the next pick succeeds.
+     * The compaction removes as many entries as were skipped, so its cost is paid for by the touches that created them.
+     */
+    public synchronized String getRandom(long now, long window) {
+        expire(now);
+        final int from = windowStart(now - window);
+        if (from == end) return null;
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < MAX_PICK_ATTEMPTS; i++) {
+            final Chatter chatter = log[from + random.nextInt(end - from)];
+            if (chatter != null) return chatter.name;
+        }
+
+        compact(from, from);
+        return from == end ? null : log[from + random.nextInt(end - from)].name;
+    }
+
+    /**
+     * Counts the users active within the given window, walking the log from the start of the window.
+     */
+    public synchronized int countActive(long now, long window) {
+        int active = 0;
+        for (int i = windowStart(now - window); i < end; i++) if (log[i] != null) active++;
+        return active;
+    }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    public synchronized void clear() {
+        byId.clear();
+        log = new Chatter[64];
+        times = new long[64];
+        start = end = 0;
+    }
+
+    public synchronized void configure(int capacity, long idleTimeout) {
+        this.capacity = Math.max(1, capacity);
+        this.idleTimeout = idleTimeout;
+        while (byId.size() > this.capacity) remove(oldest());
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    private void expire(long now) {
+        for (Chatter c = oldest(); c != null && c.lastSeen < now - idleTimeout; c = oldest()) remove(c);
+    }
+
+    private Chatter oldest() {
+        while (start < end && log[start] == null) start++;
+        return start < end ? log[start] : null;
+    }
+
+    private void remove(Chatter chatter) {
+        byId.remove(chatter.id);
+        log[chatter.pos] = null;
+    }
+
+    /**
+     * Index of the first log entry at or after the given time.
+     */
+    private int windowStart(long since) {
+        int lo = start, hi = end;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (times[mid] < since) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private void append(Chatter chatter, long now) {
+        if (end == log.length) {
+            compact(start, 0);
+            start = 0;
+            if (end > log.length / 2) {
+                log = Arrays.copyOf(log, log.length * 2);
+                times = Arrays.copyOf(times, times.length * 2);
+            }
+        }
+
+        log[end] = chatter;
+        times[end] = now;
+        chatter.pos = end++;
+    }
+
+    /**
+     * Moves the live entries from the given index on down to the target index, dropping stale ones.
+     */
+    private void compact(int from, int to) {
+        int w = to;
+        for (int i = from; i < end; i++) {
+            final Chatter chatter = log[i];
+            if (chatter == null) continue;
+            log[w] = chatter;
+            times[w] = times[i];
+            chatter.pos = w++;
+        }
+        Arrays.fill(log, w, end, null);
+        end = w;
+    }
+
+    private static class Chatter {
+
+        private final long id;
+        private String name;
+        private long lastSeen;
+        private int pos;
+
+        private Chatter(long id) {
+            this.id = id;
+        }
+
+    }
+
+}
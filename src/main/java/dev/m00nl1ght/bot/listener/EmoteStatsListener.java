@@ -0,0 +1,214 @@
+package dev.m00nl1ght.bot.listener;
+
+import com.gikk.twirk.types.emote.Emote;
+import com.gikk.twirk.types.twitchMessage.TwitchMessage;
+import dev.m00nl1ght.bot.CommandException;
+import dev.m00nl1ght.bot.Logger;
+import dev.m00nl1ght.bot.MainListener;
+import dev.m00nl1ght.bot.util.HashedWheelTimer;
+import dev.m00nl1ght.bot.util.SpaceSaving;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts emote usage from the emote ranges Twitch sends with each message.
+ * The current minute, hour and stream each have a fixed size top-k sketch, so memory stays bounded
+ * no matter how many distinct emotes are used. Whenever one of these periods ends, its top emotes
+ * are appended to a rollup file. A stream is considered over once chat was quiet for a while.
+ */
+public class EmoteStatsListener implements MsgListener {
+
+    public static final String ID = "emote_stats";
+
+    private static final long MINUTE = 60000L;
+    private static final long HOUR = 60 * MINUTE;
+
+    private final SpaceSaving minute = new SpaceSaving(64);
+    private final SpaceSaving hour = new SpaceSaving(128);
+    private final SpaceSaving stream = new SpaceSaving(256);
+    private long minuteStart, hourStart, streamStart, lastMessage;
+    private int streamGapMins = 60;
+    private File rollupFile;
+    private HashedWheelTimer.Timeout timeout;
+
+    @Override
+    public boolean onMsg(TwitchMessage msg) {
+        final List<Emote> emotes = msg.getEmotes();
+        final long now = System.currentTimeMillis();
+        synchronized (this) {
+            roll(now);
+            lastMessage = now;
+            for (final Emote emote : emotes) {
+                final int occurrences = emote.getOccurrences();
+                offer(minute, emote, occurrences);
+                offer(hour, emote, occurrences);
+                offer(stream, emote, occurrences);
+            }
+        }
+        return false;
+    }
+
+    private static void offer(SpaceSaving sketch, Emote emote, int occurrences) {
+        final int slot = sketch.offer(emote.getEmoteID(), occurrences);
+        if (sketch.getLabel(slot) == null) sketch.setLabel(slot, emote.getPattern());
+    }
+
+    /**
+     * Writes and resets every period that has ended.
+     */
+    private void roll(long now) {
+        if (lastMessage > 0 && now - lastMessage >= streamGapMins * MINUTE) endStream(now);
+        if (minuteStart == 0) minuteStart = now - now % MINUTE;
+        if (hourStart == 0) hourStart = now - now % HOUR;
+        if (streamStart == 0) streamStart = now;
+        if (now - minuteStart >= MINUTE) {
+            persist("minute", minute, minuteStart, minuteStart + MINUTE, 10);
+            minute.clear();
+            minuteStart = now - now % MINUTE;
+        }
+        if (now - hourStart >= HOUR) {
+            persist("hour", hour, hourStart, hourStart + HOUR, 25);
+            hour.clear();
+            hourStart = now - now % HOUR;
+        }
+    }
+
+    public synchronized void endStream(long now) {
+        if (minute.getTotal() > 0) persist("minute", minute, minuteStart, Math.min(now, minuteStart + MINUTE), 10);
+        if (hour.getTotal() > 0) persist("hour", hour, hourStart, Math.min(now, hourStart + HOUR), 25);
+        persist("stream", stream, streamStart, Math.min(now, lastMessage > 0 ? lastMessage : now), 50);
+        minute.clear();
+        hour.clear();
+        stream.clear();
+        minuteStart = hourStart = streamStart = 0L;
+        lastMessage = 0L;
+    }
+
+    private void persist(String scope, SpaceSaving sketch, long start, long end, int top) {
+        if (rollupFile == null || sketch.getTotal() == 0) return;
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(rollupFile, true), StandardCharsets.UTF_8)) {
+            final JSONObject object = new JSONObject();
+            object.put("scope", scope);
+            object.put("start", start);
+            object.put("end", end);
+            object.put("total", sketch.getTotal());
+            object.put("top", toJson(sketch.top(top)));
+            writer.write(object.toString());
+            writer.write('\n');
+        } catch (Exception e) {
+            Logger.warn("Failed to write emote rollup: " + e.getMessage());
+        }
+    }
+
+    private static JSONArray toJson(List<SpaceSaving.Entry> entries) {
+        final JSONArray list = new JSONArray();
+        for (final SpaceSaving.Entry entry : entries) {
+            final JSONObject object = new JSONObject();
+            object.put("id", entry.getKey());
+            object.put("pattern", entry.getLabel());
+            object.put("count", entry.getCount());
+            if (entry.getError() > 0) object.put("error", entry.getError());
+            list.put(object);
+        }
+        return list;
+    }
+
+    public synchronized List<SpaceSaving.Entry> top(String scope, int n) {
+        roll(System.currentTimeMillis());
+        return sketch(scope).top(n);
+    }
+
+    public synchronized long getTotal(String scope) {
+        return sketch(scope).getTotal();
+    }
+
+    private SpaceSaving sketch(String scope) {
+        switch (scope) {
+            case "minute": return minute;
+            case "hour": return hour;
+            case "stream": return stream;
+            default: throw new CommandException("unknown period: " + scope);
+        }
+    }
+
+    public synchronized Map<String, Number> gauges() {
+        roll(System.currentTimeMillis());
+        final Map<String, Number> gauges = new LinkedHashMap<>();
+        gauges.put("emotes_1m", minute.getTotal());
+        gauges.put("emotes_60m", hour.getTotal());
+        gauges.put("emotes_stream", stream.getTotal());
+        gauges.put("emotes_tracked", stream.size());
+        return gauges;
+    }
+
+    @Override
+    public void onAdded(MainListener main) {
+        rollupFile = main.getDataFile("emote_rollups.jsonl");
+        if (timeout != null) timeout.cancel();
+        timeout = main.getTimer().scheduleAtFixedRate(() -> {
+            synchronized (this) {
+                roll(System.currentTimeMillis());
+            }
+        }, 10, 10, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void onRemoved() {
+        if (timeout != null) timeout.cancel();
+        timeout = null;
+    }
+
+    @Override
+    public synchronized JSONObject save() throws JSONException {
+        final JSONObject object = new JSONObject();
+        object.put("streamGapMins", streamGapMins);
+        object.put("streamStart", streamStart);
+        object.put("lastMessage", lastMessage);
+        object.put("stream", toJson(stream.top(stream.getCapacity())));
+        return object;
+    }
+
+    @Override
+    public synchronized void load(JSONObject data) throws JSONException {
+        streamGapMins = data.optInt("streamGapMins", streamGapMins);
+        streamStart = data.optLong("streamStart", 0L);
+        lastMessage = data.optLong("lastMessage", 0L);
+        final JSONArray list = data.optJSONArray("stream");
+        if (list == null) return;
+        for (int i = 0; i < list.length(); i++) {
+            final JSONObject entry = list.getJSONObject(i);
+            final int slot = stream.offer(entry.getInt("id"), entry.getLong("count"));
+            stream.setLabel(slot, entry.optString("pattern", null));
+        }
+    }
+
+    @Override
+    public String getName() {
+        return ID;
+    }
+
+    @Override
+    public String getType() {
+        return ID;
+    }
+
+    @Override
+    public void fromCommand(String[] args) {
+        if (args.length < 1) throw new CommandException("usage: <stream gap mins>");
+        try {
+            streamGapMins = Integer.parseInt(args[0]);
+        } catch (NumberFormatException e) {
+            throw new CommandException("Invalid argument: must be a number");
+        }
+        if (streamGapMins < 1) throw new CommandException("stream gap must be at least 1 minute");
+    }
+
+}
@@ -0,0 +1,127 @@
+package dev.m00nl1ght.bot.listener;
+
+import com.gikk.twirk.types.twitchMessage.TwitchMessage;
+import dev.m00nl1ght.bot.Logger;
+import dev.m00nl1ght.bot.util.KeywordMatcher;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Evaluates the terms of all highlight listeners with one scan over the lower case content of each message.
+ *
+ * Term syntax: {@code term} matches anywhere, {@code w:term} only as a whole word,
+ * {@code term*} at the start of a word and {@code *term} at the end of a word.
+ */
+public class HighlightEngine implements KeywordMatcher.MatchHandler {
+
+    public static final Sink LOG_SINK = (msg, terms) -> Logger.log("HLT " + terms + " " + msg.getContent());
+
+    private final KeywordMatcher matcher;
+    private final String[] terms;
+    private final Mode[] modes;
+    private final int[] hitEpoch;
+    private int epoch = 0;
+
+    private String text;
+    private List<String> hits;
+
+    public HighlightEngine(Collection<String> terms) {
+        final List<String> raw = new ArrayList<>();
+        final List<String> cores = new ArrayList<>();
+        final List<Mode> modes = new ArrayList<>();
+        for (final String term : terms) {
+            final Mode mode = Mode.of(term);
+            final String core = mode.core(term).toLowerCase();
+            if (core.isEmpty()) continue;
+            raw.add(term);
+            cores.add(core);
+            modes.add(mode);
+        }
+
+        this.matcher = new KeywordMatcher(cores, false);
+        this.terms = raw.toArray(new String[0]);
+        this.modes = modes.toArray(new Mode[0]);
+        this.hitEpoch = new int[this.terms.length];
+    }
+
+    public boolean isEmpty() {
+        return terms.length == 0;
+    }
+
+    /**
+     * Returns the terms found in the given lower case text, in the order they were first hit.
+     */
+    public synchronized List<String> match(String text) {
+        if (terms.length == 0) return Collections.emptyList();
+        this.epoch++;
+        this.text = text;
+        this.hits = null;
+        matcher.scan(text, this);
+        final List<String> ret = hits == null ? Collections.emptyList() : hits;
+        this.text = null;
+        this.hits = null;
+        return ret;
+    }
+
+    public boolean onMsg(TwitchMessage msg, Sink sink) {
+        final List<String> hits = match(msg.getAnalysis().getLowerCase());
+        if (!hits.isEmpty()) sink.onHighlight(msg, hits);
+        return false;
+    }
+
+    @Override
+    public boolean onMatch(int keyword, int start, int end) {
+        if (hitEpoch[keyword] == epoch) return true;
+        final Mode mode = modes[keyword];
+        if (mode.needsStart && start > 0 && isWordChar(text.charAt(start - 1))) return true;
+        if (mode.needsEnd && end < text.length() && isWordChar(text.charAt(end))) return true;
+        hitEpoch[keyword] = epoch;
+        if (hits == null) hits = new ArrayList<>(2);
+        hits.add(terms[keyword]);
+        return true;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private enum Mode {
+
+        SUBSTRING(false, false), WORD(true, true), PREFIX(true, false), SUFFIX(false, true);
+
+        private final boolean needsStart, needsEnd;
+
+        Mode(boolean needsStart, boolean needsEnd) {
+            this.needsStart = needsStart;
+            this.needsEnd = needsEnd;
+        }
+
+        private static Mode of(String term) {
+            if (term.startsWith("w:")) return WORD;
+            final boolean lead = term.startsWith("*"), trail = term.endsWith("*") && term.length() > 1;
+            return lead == trail ? SUBSTRING : lead ? SUFFIX : PREFIX;
+        }
+
+        private String core(String term) {
+            switch (this) {
+                case WORD: return term.substring(2);
+                case PREFIX: return term.substring(0, term.length() - 1);
+                case SUFFIX: return term.substring(1);
+                default: return term.length() > 1 && term.startsWith("*") && term.endsWith("*")
+                        ? term.substring(1, term.length() - 1) : term;
+            }
+        }
+
+    }
+
+    @FunctionalInterface
+    public interface Sink {
+
+        void onHighlight(TwitchMessage msg, List<String> terms);
+
+    }
+
+}
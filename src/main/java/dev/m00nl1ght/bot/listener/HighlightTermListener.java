@@ -2,7 +2,6 @@ package dev.m00nl1ght.bot.listener;
 
 import com.gikk.twirk.types.twitchMessage.TwitchMessage;
 import dev.m00nl1ght.bot.CommandException;
-import dev.m00nl1ght.bot.Logger;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -14,13 +13,14 @@ public class HighlightTermListener implements MsgListener {
 
     @Override
     public boolean onMsg(TwitchMessage msg) {
-        if (term == null) return false;
-        if (msg.getContent().toLowerCase().contains(term)) {
-            Logger.log("HLT " + msg.getContent());
-        }
+        // all highlight terms are evaluated together by the HighlightEngine of MainListener
         return false;
     }
 
+    public String getTerm() {
+        return term;
+    }
+
     @Override
     public JSONObject save() throws JSONException {
         final JSONObject object = new JSONObject();
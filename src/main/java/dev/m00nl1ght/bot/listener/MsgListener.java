@@ -1,6 +1,7 @@
 package dev.m00nl1ght.bot.listener;
 
 import com.gikk.twirk.types.twitchMessage.TwitchMessage;
+import dev.m00nl1ght.bot.MainListener;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -24,4 +25,12 @@ public interface MsgListener {
         //NO-OP
     }
 
+    default void onAdded(MainListener main) {
+        //NO-OP
+    }
+
+    default void onRemoved() {
+        //NO-OP
+    }
+
 }
@@ -16,6 +16,8 @@ public class MsgListenerTypes {
     static {
         register(HighlightTermListener.ID, HighlightTermListener::new);
         register(UserBufferListener.ID, UserBufferListener::new);
+        register(AnnounceListener.ID, AnnounceListener::new);
+        register(EmoteStatsListener.ID, EmoteStatsListener::new);
     }
 
     public static void register(String id, Supplier<MsgListener> factory) {
@@ -1,50 +1,44 @@
 package dev.m00nl1ght.bot.listener;
 
 import com.gikk.twirk.types.twitchMessage.TwitchMessage;
+import com.gikk.twirk.types.users.TwitchUser;
 import dev.m00nl1ght.bot.CommandException;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.util.Random;
-
 public class UserBufferListener implements MsgListener {
 
-    private static final Random random = new Random();
     public static final String ID = "user_buffer";
 
-    private String[] data;
+    private final ChatterRegistry registry = new ChatterRegistry(50, 10 * 60000L);
     private int count = 0;
 
-    public UserBufferListener() {
-        init(50);
-    }
-
-    public void put(String value) {
-        final int pointer = count % data.length;
-        data[pointer] = value;
-        count++;
-    }
-
-    public String get(int idx) {
-        if (idx < 0 || idx > data.length || idx > count) throw new ArrayIndexOutOfBoundsException();
-        return data[count <= data.length ? idx : (count + idx) % data.length];
+    public String getRandom() {
+        return registry.getRandom(System.currentTimeMillis());
     }
 
-    public String getRandom() {
-        return count <= 0 ? null : get(random.nextInt(getSize()));
+    public String getRandom(long window) {
+        return registry.getRandom(System.currentTimeMillis(), window);
     }
 
     public int getSize() {
-        return Math.min(data.length, count);
+        return registry.size();
     }
 
     public int getCount() {
         return count;
     }
 
+    public ChatterRegistry getRegistry() {
+        return registry;
+    }
+
     @Override
     public boolean onMsg(TwitchMessage msg) {
-        put(msg.getUser().getDisplayName());
+        final TwitchUser user = msg.getUser();
+        final long id = user.getUserID() != 0 ? user.getUserID() : -1L - (user.getUserName().hashCode() & 0x7fffffffL);
+        registry.touch(id, user.getDisplayName(), System.currentTimeMillis());
+        count++;
         return false;
     }
 
@@ -61,28 +55,32 @@ public class UserBufferListener implements MsgListener {
     @Override
     public void load(JSONObject data) throws JSONException {
         final int capacity = data.optInt("capacity", 50);
-        init(capacity);
+        final int idle = data.optInt("idleMinutes", 10);
+        init(capacity, idle);
     }
 
     @Override
     public JSONObject save() throws JSONException {
         final JSONObject object = new JSONObject();
-        object.put("capacity", data.length);
+        object.put("capacity", registry.getCapacity());
+        object.put("idleMinutes", registry.getIdleTimeout() / 60000L);
         return object;
     }
 
     @Override
     public void fromCommand(String[] args) {
         try {
-            final int capacity = args.length > 0 ? Integer.parseInt(args[1]) : 50;
-            init(capacity);
+            final int capacity = args.length > 0 && !args[0].isEmpty() ? Integer.parseInt(args[0]) : 50;
+            final int idle = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+            init(capacity, idle);
         } catch (NumberFormatException e) {
-            throw new CommandException("not a number: " + args[1], e);
+            throw new CommandException("not a number: " + e.getMessage(), e);
         }
     }
 
-    private void init(int capacity) {
-        this.data = new String[capacity];
+    private void init(int capacity, int idleMinutes) {
+        registry.configure(capacity, idleMinutes * 60000L);
+        registry.clear();
         count = 0;
     }
 
@@ -15,10 +15,7 @@ public class RangAlias extends Command {
     @Override
     public void execute(CommandParser parser) {
         if (parser.nextParam().isEmpty()) {
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {}
-            parent.sendMessage("!rang " + parser.getSource().getUser().getDisplayName());
+            parent.sendMessage("!rang " + parser.getSource().getUser().getDisplayName(), 1000L);
         }
     }
 
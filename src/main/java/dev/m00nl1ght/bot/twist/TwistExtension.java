@@ -7,6 +7,7 @@ import com.gikk.twirk.types.users.TwitchUser;
 import dev.m00nl1ght.bot.ChannelEventHandler;
 import dev.m00nl1ght.bot.MainListener;
 import dev.m00nl1ght.bot.listener.MsgListenerTypes;
+import dev.m00nl1ght.bot.twist.dbd.CachedRequest;
 import dev.m00nl1ght.bot.twist.dbd.DbdCommand;
 
 public class TwistExtension implements ChannelEventHandler {
@@ -22,6 +23,7 @@ public class TwistExtension implements ChannelEventHandler {
 
     public static void register(MainListener core) {
         INSTANCE = new TwistExtension(core);
+        CachedRequest.setCacheDirectory(core.getDataFile("cache"));
         core.commandManager.registerType(RangAlias.TYPE);
         core.commandManager.registerType(ExtensionCommand.TYPE);
         core.commandManager.registerType(DbdCommand.TYPE);
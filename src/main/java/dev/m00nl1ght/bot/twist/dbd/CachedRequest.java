@@ -1,29 +1,61 @@
 package dev.m00nl1ght.bot.twist.dbd;
 
 import dev.m00nl1ght.bot.CommandException;
+import dev.m00nl1ght.bot.Logger;
+import dev.m00nl1ght.bot.util.HttpClient;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLConnection;
+import java.io.*;
 import java.net.URLEncoder;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Cached result of a GET request. Concurrent refreshes are collapsed into one request,
+ * expired values keep being served while a refresh runs in the background,
+ * and refreshes already start shortly before the value expires.
+ * Revalidation is conditional when the server provided an ETag or Last-Modified date.
+ * After a failed refresh no new request is made for a while, callers get the failure or the last known value instead.
+ */
 public class CachedRequest<T> {
 
+    private static final Map<String, String> HEADERS = new HashMap<>();
+
+    static {
+        HEADERS.put("Content-Type", "application/x-www-form-urlencoded");
+        HEADERS.put("User-Agent", "Mozilla/5.0 (Windows; U; Windows NT 6.1; en-GB; rv:1.9.2.8) Gecko/20100722 Firefox/3.6.8");
+        HEADERS.put("Accept-Encoding", "gzip");
+    }
+
     private final String request;
     private final Factory<T> func;
     private final long maxCache;
-    private T cached;
-    private long timestamp = -1L;
+    private long refreshAhead;
+    private long maxStale;
+    private long failureBackoff = 30000L;
+    private ExpiryExtractor<T> expiryExtractor;
+
+    private static final long MAX_FILE_AGE = 7 * 24 * 3600000L;
+    private static volatile File cacheDirectory;
+
+    private volatile Entry<T> cached;
+    private volatile boolean diskChecked = false;
+    private final AtomicReference<CompletableFuture<Entry<T>>> inFlight = new AtomicReference<>();
+    private volatile CompletableFuture<Entry<T>> lastFailure;
+    private volatile long retryAfter;
 
     public CachedRequest(String request, Factory<T> func, int chacheMins) {
         this.request = request;
-        this.maxCache = chacheMins * 60000;
+        this.maxCache = chacheMins * 60000L;
+        this.refreshAhead = maxCache / 10;
+        this.maxStale = maxCache;
         this.func = func;
     }
 
@@ -31,39 +63,251 @@ public class CachedRequest<T> {
         this(request + URLEncoder.encode(param), func, chacheMins);
     }
 
-    public T get() {
-        long t = System.currentTimeMillis();
-        if (cached == null || t - timestamp >= maxCache) {
-            cached = httpGet(request, func);
-            timestamp = t;
+    /**
+     * Uses an expiry time provided by the response itself, if it is earlier than the configured cache time.
+     * Such values are refreshed ahead of time but never served stale.
+     */
+    public CachedRequest<T> withExpiry(ExpiryExtractor<T> expiryExtractor) {
+        this.expiryExtractor = expiryExtractor;
+        return this;
+    }
+
+    public CachedRequest<T> withRefreshAhead(long millis) {
+        this.refreshAhead = millis;
+        return this;
+    }
+
+    /**
+     * Limits how long after expiry a stale value may still be served while refreshing.
+     */
+    public CachedRequest<T> withMaxStale(long millis) {
+        this.maxStale = millis;
+        return this;
+    }
+
+    /**
+     * Sets how long after a failed refresh the failure is reused instead of making a new request.
+     */
+    public CachedRequest<T> withFailureBackoff(long millis) {
+        this.failureBackoff = millis;
+        return this;
+    }
+
+    /**
+     * Enables the disk tier, responses are stored in the given directory and reused after restarts.
+     * Files that were not written for a week are deleted, they belong to requests that are no longer made.
+     */
+    public static void setCacheDirectory(File directory) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            Logger.warn("Failed to create cache directory " + directory);
+            return;
+        }
+        cacheDirectory = directory;
+        prune(directory, System.currentTimeMillis() - MAX_FILE_AGE);
+    }
+
+    private static void prune(File directory, long cutoff) {
+        final File[] files = directory.listFiles((dir, name) -> name.endsWith(".json") || name.endsWith(".tmp"));
+        if (files == null) return;
+        for (final File file : files) {
+            if (file.lastModified() < cutoff && !file.delete()) Logger.warn("Failed to delete " + file);
         }
-        return cached;
+    }
+
+    public T get() {
+        final long t = System.currentTimeMillis();
+        if (!diskChecked) loadFromDisk();
+        final Entry<T> entry = cached;
+        if (entry == null || t >= entry.staleUntil) return await(refresh(), entry);
+        if (t >= entry.expires - refreshAhead) refresh();
+        return entry.value;
     }
 
     public void invalidate() {
         cached = null;
+        lastFailure = null;
+        final File file = cacheFile();
+        if (file != null && file.exists() && !file.delete()) Logger.warn("Failed to delete " + file);
+    }
+
+    private CompletableFuture<Entry<T>> refresh() {
+        final CompletableFuture<Entry<T>> failed = lastFailure;
+        if (failed != null && System.currentTimeMillis() < retryAfter) return failed;
+        while (true) {
+            final CompletableFuture<Entry<T>> running = inFlight.get();
+            if (running != null) return running;
+            final CompletableFuture<Entry<T>> future = new CompletableFuture<>();
+            if (!inFlight.compareAndSet(null, future)) continue;
+            final Entry<T> current = cached;
+            final Map<String, String> headers = new HashMap<>(HEADERS);
+            if (current != null && current.etag != null) headers.put("If-None-Match", current.etag);
+            if (current != null && current.lastModified != null) headers.put("If-Modified-Since", current.lastModified);
+            HttpClient.SHARED.getAsync(request, headers).thenApply(r -> parse(r, current)).whenComplete((entry, error) -> {
+                if (entry != null) {
+                    cached = entry;
+                    lastFailure = null;
+                    saveToDisk(entry);
+                }
+                if (error != null) {
+                    Logger.warn("Failed to refresh " + describe() + ": " + error.getMessage());
+                    retryAfter = System.currentTimeMillis() + failureBackoff;
+                    lastFailure = future;
+                }
+                inFlight.set(null);
+                if (error != null) {
+                    future.completeExceptionally(error);
+                } else {
+                    future.complete(entry);
+                }
+            });
+            return future;
+        }
+    }
+
+    private Entry<T> parse(HttpClient.Response response, Entry<T> current) {
+        try {
+            final long now = System.currentTimeMillis();
+            // not modified, keep the parsed value and just renew it
+            if (response.getStatus() == 304 && current != null)
+                return create(current.value, current.body, now, current.etag, current.lastModified);
+            final String body = response.getBodyOrThrow();
+            return create(func.get(body), body, now, response.getHeader("ETag"), response.getHeader("Last-Modified"));
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
     }
 
-    private static URLConnection openConnection(URL url) throws IOException {
-        HttpURLConnection urlConnection = (HttpURLConnection)(url.openConnection());
-        urlConnection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-        urlConnection.setRequestProperty("User-Agent", "Mozilla/5.0 (Windows; U; Windows NT 6.1; en-GB; rv:1.9.2.8) Gecko/20100722 Firefox/3.6.8");
-        return urlConnection;
+    private Entry<T> create(T value, String body, long fetched, String etag, String lastModified) {
+        long expires = fetched + maxCache;
+        long staleUntil = expires + maxStale;
+        boolean fallback = true;
+        if (expiryExtractor != null) {
+            try {
+                final Long provided = expiryExtractor.get(value);
+                // data with a known end of validity is never served past it
+                if (provided != null && provided > fetched && provided < expires) {
+                    expires = staleUntil = provided;
+                    fallback = false;
+                }
+            } catch (Exception e) {
+                Logger.warn("Failed to read expiry of " + describe() + ": " + e.getMessage());
+            }
+        }
+        return new Entry<>(value, body, fetched, expires, staleUntil, fallback, etag, lastModified);
+    }
+
+    private void loadFromDisk() {
+        diskChecked = true;
+        final File file = cacheFile();
+        if (file == null || !file.exists() || cached != null) return;
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            final JSONObject data = new JSONObject(new JSONTokener(reader));
+            if (data.has("url")) {
+                // written by an older version that stored the url, which may contain api keys
+                if (!file.delete()) Logger.warn("Failed to delete " + file);
+                return;
+            }
+            if (!requestHash().equals(data.optString("hash"))) return;
+            final String body = data.getString("body");
+            final Entry<T> entry = create(func.get(body), body, data.getLong("fetched"),
+                    data.optString("etag", null), data.optString("lastModified", null));
+            if (System.currentTimeMillis() < entry.staleUntil && cached == null) cached = entry;
+        } catch (Exception e) {
+            Logger.warn("Failed to read cached response " + file + ": " + e.getMessage());
+        }
     }
 
-    private static <T> T httpGet(String urlString, Factory<T> factory) {
-        try (BufferedReader in = new BufferedReader(new InputStreamReader(openConnection(new URL(urlString)).getInputStream()))) {
-            String response = in.lines().collect(Collectors.joining());
-            in.close();
-            return factory.get(response);
+    private void saveToDisk(Entry<T> entry) {
+        final File file = cacheFile();
+        if (file == null) return;
+        final File tmp = new File(file.getPath() + ".tmp");
+        try {
+            final JSONObject data = new JSONObject();
+            // the url may contain api keys, so only its hash is stored
+            data.put("hash", requestHash());
+            data.put("fetched", entry.fetched);
+            data.put("expires", entry.expires);
+            if (entry.etag != null) data.put("etag", entry.etag);
+            if (entry.lastModified != null) data.put("lastModified", entry.lastModified);
+            data.put("body", entry.body);
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+                writer.write(data.toString());
+            }
+            if (file.exists() && !file.delete()) throw new IOException("Failed to replace " + file);
+            if (!tmp.renameTo(file)) throw new IOException("Failed to move " + tmp);
         } catch (Exception e) {
-            e.printStackTrace();
-            throw new CommandException("Failed to get data from DbD API", e);
+            Logger.warn("Failed to write cached response " + file + ": " + e.getMessage());
         }
     }
 
+    private File cacheFile() {
+        final File dir = cacheDirectory;
+        return dir == null ? null : new File(dir, requestHash() + ".json");
+    }
+
+    private String requestHash() {
+        try {
+            final byte[] hash = MessageDigest.getInstance("SHA-1").digest(request.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder str = new StringBuilder(hash.length * 2);
+            for (final byte b : hash) str.append(String.format("%02x", b));
+            return str.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The url for log messages, with the values of api keys removed.
+     */
+    private String describe() {
+        return request.replaceAll("([?&]key=)[^&]*", "$1***");
+    }
+
+    /**
+     * Waits for a refresh, if it fails the last known value is used as long as it has no fixed end of validity.
+     */
+    private static <T> T await(CompletableFuture<Entry<T>> future, Entry<T> last) {
+        try {
+            return future.join().value;
+        } catch (CompletionException e) {
+            if (last != null && last.fallback) return last.value;
+            final Throwable cause = e.getCause() == null ? e : e.getCause();
+            if (cause instanceof HttpClient.CircuitOpenException)
+                throw new CommandException("The DbD API is currently unavailable, try again later", cause);
+            throw new CommandException("Failed to get data from DbD API", cause);
+        }
+    }
+
+    private static class Entry<T> {
+
+        private final T value;
+        private final String body;
+        private final long fetched;
+        private final long expires;
+        private final long staleUntil;
+        private final boolean fallback;
+        private final String etag;
+        private final String lastModified;
+
+        private Entry(T value, String body, long fetched, long expires, long staleUntil, boolean fallback, String etag, String lastModified) {
+            this.value = value;
+            this.body = body;
+            this.fetched = fetched;
+            this.expires = expires;
+            this.staleUntil = staleUntil;
+            this.fallback = fallback;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+    }
+
     public interface Factory<T> {
         T get(String str) throws Exception;
     }
 
+    public interface ExpiryExtractor<T> {
+        Long get(T value) throws Exception;
+    }
+
 }
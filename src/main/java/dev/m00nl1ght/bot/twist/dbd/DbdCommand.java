@@ -7,6 +7,7 @@ import dev.m00nl1ght.bot.Logger;
 import dev.m00nl1ght.bot.MainListener;
 import dev.m00nl1ght.bot.commands.Command;
 import dev.m00nl1ght.bot.commands.ComplexCommand;
+import dev.m00nl1ght.bot.util.FuzzyIndex;
 import dev.m00nl1ght.bot.util.SearchUtil;
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -15,6 +16,7 @@ import org.json.JSONTokener;
 
 import java.io.File;
 import java.io.FileReader;
+import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.HashMap;
@@ -25,11 +27,12 @@ public class DbdCommand extends ComplexCommand {
 
     public static final Type TYPE = new Type("dbd");
     private static final Map<String, Perk> DBD_PERKS_ID = new HashMap<>();
-    private static final Map<String, Perk> DBD_PERKS_SEARCH = new HashMap<>();
+    private static final Map<String, Perk> DBD_PERKS_SEARCH = new FuzzyIndex<>();
     private static final SimpleDateFormat eventFormat = new SimpleDateFormat("dd.MM. HH:mm");
     private static final SimpleDateFormat jsonFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
 
-    private static final CachedRequest<JSONObject> DBD_API_SHRINE = new CachedRequest<>("https://dbd-stats.info/api/shrineofsecrets", JSONObject::new, 30);
+    private static final CachedRequest<JSONObject> DBD_API_SHRINE = new CachedRequest<>("https://dbd-stats.info/api/shrineofsecrets", JSONObject::new, 30)
+            .withExpiry(data -> parseJsonDate(jsonGetString(data, "endDate", "EndDate")).getTime());
     private static final CachedRequest<JSONArray> DBD_API_EVENT = new CachedRequest<>("https://dbd.onteh.net.au/api/events", JSONArray::new, 30);
     private static final CachedRequest<JSONObject> DBD_API_RESET = new CachedRequest<>("https://dbd.onteh.net.au/api/rankreset", JSONObject::new, 30);
 
@@ -151,7 +154,7 @@ public class DbdCommand extends ComplexCommand {
                 }
 
                 try {
-                    Date endDate = jsonFormat.parse(jsonGetString(data, "endDate", "EndDate"));
+                    Date endDate = parseJsonDate(jsonGetString(data, "endDate", "EndDate"));
                     long reset = endDate.getTime();
                     msg += " n\u00E4chster Reset in " + timeDiff(reset - System.currentTimeMillis());
                 } catch (Exception e) {
@@ -359,6 +362,12 @@ public class DbdCommand extends ComplexCommand {
 
     }
 
+    private static Date parseJsonDate(String str) throws ParseException {
+        synchronized (jsonFormat) {
+            return jsonFormat.parse(str);
+        }
+    }
+
     private static String jsonGetString(JSONObject json, String... name) {
         for (String n : name) {
             String ret = json.optString(n, null);
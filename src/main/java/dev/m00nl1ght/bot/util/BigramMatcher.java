@@ -0,0 +1,138 @@
+package dev.m00nl1ght.bot.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Finds fuzzy matches for a query using a bigram index over a set of keys, without computing
+ * the edit distance to every key. Subclasses provide the index, which may live on the heap or in a mapped file.
+ *
+ * Candidates are narrowed down by key length and by the number of shared (padded) bigrams,
+ * a key within edit distance d of the query shares at least max(len) + 1 - 2d of them.
+ * Only the remaining candidates are verified with a bounded edit distance.
+ * The per-key counters are reused between queries, so a lookup only costs memory for the keys it touches.
+ */
+public abstract class BigramMatcher {
+
+    public static final char PAD = '\u0000';
+
+    private int[] counts = new int[0];
+    private int[] touched = new int[16];
+    private int touchedSize = 0;
+    private int queryGramCount;
+
+    private String query;
+    private double threshold;
+    private int maxDist;
+    private String bestKey;
+    private double bestValue;
+
+    private final Sink counter = (slot, count) -> {
+        if (counts[slot] == 0) {
+            if (touchedSize == touched.length) touched = Arrays.copyOf(touched, touchedSize * 2);
+            touched[touchedSize++] = slot;
+        }
+        counts[slot] += Math.min(queryGramCount, count);
+    };
+
+    private final Sink verifier = (slot, count) -> consider(key(slot));
+
+    /**
+     * Upper bound (exclusive) of the slots used for keys.
+     */
+    protected abstract int slotBound();
+
+    protected abstract String key(int slot);
+
+    protected abstract int maxLength();
+
+    /**
+     * Passes every slot whose key contains the given bigram to the sink, together with how often it occurs in the key.
+     */
+    protected abstract void postings(int gram, Sink sink);
+
+    /**
+     * Passes every slot whose key has the given length to the sink.
+     */
+    protected abstract void slotsOfLength(int length, Sink sink);
+
+    public synchronized String findBest(String query, double threshold) {
+        final int ql = query.length();
+        if (counts.length < slotBound()) counts = new int[Math.max(slotBound(), counts.length * 2)];
+        this.query = query;
+        this.threshold = threshold;
+        this.bestKey = null;
+        this.bestValue = 0D;
+
+        touchedSize = 0;
+        try {
+            for (final Map.Entry<Integer, Integer> gram : grams(query).entrySet()) {
+                queryGramCount = gram.getValue();
+                postings(gram.getKey(), counter);
+            }
+
+            for (int i = 0; i < touchedSize; i++) {
+                final int slot = touched[i];
+                final String key = key(slot);
+                final int kl = key.length();
+                maxDist = maxDistance(Math.max(kl, ql), threshold);
+                final int required = Math.max(kl, ql) + 1 - 2 * maxDist;
+                if (required <= 0 || Math.abs(kl - ql) > maxDist || counts[slot] < required) continue;
+                consider(key);
+            }
+        } finally {
+            for (int i = 0; i < touchedSize; i++) counts[touched[i]] = 0;
+        }
+
+        // keys too short for the bigram bound to exclude anything have to be checked directly
+        for (int kl = 0; kl <= maxLength(); kl++) {
+            maxDist = maxDistance(Math.max(kl, ql), threshold);
+            if (Math.abs(kl - ql) > maxDist || Math.max(kl, ql) + 1 - 2 * maxDist > 0) continue;
+            slotsOfLength(kl, verifier);
+        }
+
+        final String ret = bestKey;
+        this.query = null;
+        this.bestKey = null;
+        return ret;
+    }
+
+    private void consider(String key) {
+        final double d = verify(key, query, maxDist);
+        if (d > threshold && d > bestValue) {
+            bestKey = key;
+            bestValue = d;
+        }
+    }
+
+    private static int maxDistance(int length, double threshold) {
+        return (int) Math.floor(length * (1D - threshold) + 1e-9);
+    }
+
+    private static double verify(String key, String query, int maxDist) {
+        final int length = Math.max(key.length(), query.length());
+        if (length == 0) return 1.0;
+        final int dist = SearchUtil.editDistance(key, query, maxDist);
+        return dist > maxDist ? -1D : (length - dist) / (double) length;
+    }
+
+    /**
+     * Counts the padded bigrams of the given string, each packed into an int.
+     */
+    public static Map<Integer, Integer> grams(String str) {
+        final Map<Integer, Integer> grams = new HashMap<>();
+        char prev = PAD;
+        for (int i = 0; i <= str.length(); i++) {
+            final char next = i < str.length() ? str.charAt(i) : PAD;
+            grams.merge((prev << 16) | next, 1, Integer::sum);
+            prev = next;
+        }
+        return grams;
+    }
+
+    public interface Sink {
+        void accept(int slot, int count);
+    }
+
+}
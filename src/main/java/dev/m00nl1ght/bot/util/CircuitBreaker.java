@@ -0,0 +1,80 @@
+package dev.m00nl1ght.bot.util;
+
+import dev.m00nl1ght.bot.Logger;
+
+/**
+ * Stops calls to a failing dependency. After the given number of consecutive failures the circuit opens
+ * and calls are rejected, once the open duration has passed a single probe call is let through,
+ * closing the circuit again if it succeeds.
+ */
+public class CircuitBreaker {
+
+    public enum State {CLOSED, OPEN, HALF_OPEN}
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openDuration;
+
+    private State state = State.CLOSED;
+    private int failures = 0;
+    private long openedAt = 0L;
+    private boolean probing = false;
+
+    public CircuitBreaker(String name, int failureThreshold, long openDuration) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * Returns whether a call may be made now, every permitted call must be followed by
+     * {@link #onSuccess()}, {@link #onFailure()} or {@link #release()}.
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() - openedAt < openDuration) return false;
+                state = State.HALF_OPEN;
+                probing = true;
+                return true;
+            default:
+                if (probing) return false;
+                probing = true;
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) Logger.log("Circuit for " + name + " closed");
+        state = State.CLOSED;
+        failures = 0;
+        probing = false;
+    }
+
+    /**
+     * Gives back a permitted call that was not made, it counts neither as success nor as failure.
+     */
+    public synchronized void release() {
+        probing = false;
+    }
+
+    public synchronized void onFailure() {
+        probing = false;
+        if (state == State.HALF_OPEN || ++failures >= failureThreshold) {
+            if (state != State.OPEN) Logger.warn("Circuit for " + name + " opened after " + failures + " failures");
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+}
@@ -0,0 +1,189 @@
+package dev.m00nl1ght.bot.util;
+
+import java.util.*;
+
+/**
+ * Map with a bigram index over its keys, used by {@link SearchUtil} to find fuzzy matches
+ * without computing the edit distance to every key, see {@link BigramMatcher}.
+ */
+public class FuzzyIndex<T> extends AbstractMap<String, T> implements FuzzyMap<T> {
+
+    private final Map<String, T> backing;
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final Map<Integer, IntList> postings = new HashMap<>();
+    private final Map<Integer, IntList> lengths = new HashMap<>();
+    private final List<String> keys = new ArrayList<>();
+    private final IntList free = new IntList();
+    private int maxLength = 0;
+
+    private final BigramMatcher matcher = new BigramMatcher() {
+        @Override protected int slotBound() {return keys.size();}
+        @Override protected String key(int slot) {return keys.get(slot);}
+        @Override protected int maxLength() {return maxLength;}
+
+        @Override
+        protected void postings(int gram, Sink sink) {
+            final IntList posting = postings.get(gram);
+            if (posting == null) return;
+            for (int i = 0; i < posting.size; i += 2) sink.accept(posting.data[i], posting.data[i + 1]);
+        }
+
+        @Override
+        protected void slotsOfLength(int length, Sink sink) {
+            final IntList bucket = lengths.get(length);
+            if (bucket == null) return;
+            for (int i = 0; i < bucket.size; i++) sink.accept(bucket.data[i], 1);
+        }
+    };
+
+    public FuzzyIndex() {
+        this(new HashMap<>());
+    }
+
+    /**
+     * Wraps the given map, modifications must go through this index to keep it in sync.
+     */
+    public FuzzyIndex(Map<String, T> backing) {
+        this.backing = backing;
+        for (final String key : backing.keySet()) index(key);
+    }
+
+    @Override
+    public Optional<T> findMatch(String query, double threshold) {
+        final T ret = backing.get(query);
+        if (ret != null) return Optional.of(ret);
+        final String key = matcher.findBest(query, threshold);
+        return key == null ? Optional.empty() : Optional.ofNullable(backing.get(key));
+    }
+
+    @Override
+    public Optional<String> findMatchKey(String query, double threshold) {
+        final Object ret = backing.get(query);
+        if (ret != null) return Optional.of(query);
+        return Optional.ofNullable(matcher.findBest(query, threshold));
+    }
+
+    @Override
+    public T get(Object key) {
+        return backing.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return backing.containsKey(key);
+    }
+
+    @Override
+    public T put(String key, T value) {
+        final T prev = backing.put(key, value);
+        if (!slots.containsKey(key)) index(key);
+        return prev;
+    }
+
+    @Override
+    public T remove(Object key) {
+        final boolean present = backing.containsKey(key);
+        final T prev = backing.remove(key);
+        if (present) unindex((String) key);
+        return prev;
+    }
+
+    @Override
+    public void clear() {
+        backing.clear();
+        slots.clear();
+        postings.clear();
+        lengths.clear();
+        keys.clear();
+        free.size = 0;
+        maxLength = 0;
+    }
+
+    @Override
+    public int size() {
+        return backing.size();
+    }
+
+    @Override
+    public Set<Entry<String, T>> entrySet() {
+        return new AbstractSet<Entry<String, T>>() {
+            @Override
+            public Iterator<Entry<String, T>> iterator() {
+                final Iterator<Entry<String, T>> iterator = backing.entrySet().iterator();
+                return new Iterator<Entry<String, T>>() {
+                    private Entry<String, T> last;
+                    @Override public boolean hasNext() {return iterator.hasNext();}
+                    @Override public Entry<String, T> next() {return last = iterator.next();}
+                    @Override public void remove() {
+                        if (last == null) throw new IllegalStateException();
+                        final String key = last.getKey();
+                        iterator.remove();
+                        unindex(key);
+                        last = null;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return backing.size();
+            }
+        };
+    }
+
+    private void index(String key) {
+        final int slot;
+        if (free.size > 0) {
+            slot = free.data[--free.size];
+            keys.set(slot, key);
+        } else {
+            slot = keys.size();
+            keys.add(key);
+        }
+
+        slots.put(key, slot);
+        lengths.computeIfAbsent(key.length(), l -> new IntList()).add(slot);
+        maxLength = Math.max(maxLength, key.length());
+        for (final Map.Entry<Integer, Integer> gram : BigramMatcher.grams(key).entrySet()) {
+            final IntList posting = postings.computeIfAbsent(gram.getKey(), g -> new IntList());
+            posting.add(slot);
+            posting.add(gram.getValue());
+        }
+    }
+
+    private void unindex(String key) {
+        final Integer slot = slots.remove(key);
+        if (slot == null) return;
+        lengths.get(key.length()).removeValue(slot, 1);
+        for (final Integer gram : BigramMatcher.grams(key).keySet()) {
+            final IntList posting = postings.get(gram);
+            posting.removeValue(slot, 2);
+            if (posting.size == 0) postings.remove(gram);
+        }
+        keys.set(slot, null);
+        free.add(slot);
+    }
+
+    private static class IntList {
+
+        private int[] data = new int[4];
+        private int size = 0;
+
+        private void add(int value) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = value;
+        }
+
+        private void removeValue(int value, int stride) {
+            for (int i = 0; i < size; i += stride) {
+                if (data[i] == value) {
+                    System.arraycopy(data, i + stride, data, i, size - i - stride);
+                    size -= stride;
+                    return;
+                }
+            }
+        }
+
+    }
+
+}
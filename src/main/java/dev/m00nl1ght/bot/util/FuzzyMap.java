@@ -0,0 +1,15 @@
+package dev.m00nl1ght.bot.util;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Map that can find keys similar to a query faster than comparing it to every key, see {@link SearchUtil}.
+ */
+public interface FuzzyMap<T> extends Map<String, T> {
+
+    Optional<T> findMatch(String query, double threshold);
+
+    Optional<String> findMatchKey(String query, double threshold);
+
+}
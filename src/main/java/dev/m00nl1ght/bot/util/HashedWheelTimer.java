@@ -0,0 +1,194 @@
+package dev.m00nl1ght.bot.util;
+
+import dev.m00nl1ght.bot.Logger;
+
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Timer for large numbers of delayed and recurring tasks with coarse precision.
+ * Tasks are placed in the bucket of a wheel that a single thread advances once per tick,
+ * so scheduling and cancelling are O(1) regardless of how many tasks are pending.
+ * Expired tasks are run on a separate worker pool, a slow task never delays the wheel.
+ */
+public class HashedWheelTimer {
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final ExecutorService workers;
+    private final Thread thread;
+    private final long startTime;
+    private volatile boolean stopped = false;
+    private long tick = 0L;
+
+    public HashedWheelTimer(String name, long tickMillis, int wheelSize) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, tickMillis));
+        int size = 1;
+        while (size < wheelSize) size <<= 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) wheel[i] = new Bucket();
+        this.mask = size - 1;
+
+        final AtomicInteger count = new AtomicInteger();
+        this.workers = Executors.newCachedThreadPool(r -> {
+            final Thread worker = new Thread(r, name + "-" + count.incrementAndGet());
+            worker.setDaemon(true);
+            return worker;
+        });
+
+        this.startTime = System.nanoTime();
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return add(new Timeout(task, System.nanoTime() - startTime + unit.toNanos(Math.max(0L, delay)), 0L));
+    }
+
+    /**
+     * Runs the task repeatedly until the returned handle is cancelled, runs never overlap.
+     */
+    public Timeout scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0L) throw new IllegalArgumentException("period must be positive");
+        return add(new Timeout(task, System.nanoTime() - startTime + unit.toNanos(Math.max(0L, initialDelay)), unit.toNanos(period)));
+    }
+
+    public void stop() {
+        stopped = true;
+        thread.interrupt();
+        workers.shutdown();
+    }
+
+    private Timeout add(Timeout timeout) {
+        if (stopped) throw new IllegalStateException("timer has been stopped");
+        pending.add(timeout);
+        return timeout;
+    }
+
+    private void run() {
+        while (!stopped) {
+            final long sleep = (tick + 1) * tickNanos - (System.nanoTime() - startTime);
+            if (sleep > 0L) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                } catch (InterruptedException e) {
+                    if (stopped) return;
+                }
+                continue;
+            }
+
+            transferPending();
+            final long now = System.nanoTime() - startTime;
+            final Bucket bucket = wheel[(int) (tick & mask)];
+            Timeout t = bucket.head;
+            while (t != null) {
+                final Timeout next = t.next;
+                if (t.isCancelled()) {
+                    bucket.remove(t);
+                } else if (t.rounds <= 0 && t.deadline <= now) {
+                    bucket.remove(t);
+                    expire(t);
+                } else {
+                    t.rounds--;
+                }
+                t = next;
+            }
+            tick++;
+        }
+    }
+
+    private void transferPending() {
+        Timeout t;
+        while ((t = pending.poll()) != null) {
+            if (t.isCancelled()) continue;
+            final long target = Math.max(t.deadline / tickNanos, tick);
+            t.rounds = (target - tick) / wheel.length;
+            wheel[(int) (target & mask)].add(t);
+        }
+    }
+
+    private void expire(Timeout t) {
+        if (t.period <= 0L && !t.state.compareAndSet(Timeout.PENDING, Timeout.EXPIRED)) return;
+        try {
+            workers.execute(() -> {
+                try {
+                    t.task.run();
+                } catch (Throwable e) {
+                    Logger.error("Scheduled task failed: " + e);
+                    e.printStackTrace();
+                } finally {
+                    // recurring tasks are only queued again once the previous run has finished
+                    if (t.period > 0L && !t.isCancelled() && !stopped) {
+                        t.deadline += t.period;
+                        pending.add(t);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (!stopped) Logger.error("Failed to run scheduled task: " + e.getMessage());
+        }
+    }
+
+    public static class Timeout {
+
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+        private final long period;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private long deadline;
+        private long rounds;
+        private Timeout prev, next;
+
+        private Timeout(Runnable task, long deadline, long period) {
+            this.task = task;
+            this.deadline = deadline;
+            this.period = period;
+        }
+
+        /**
+         * Cancels the task, returns false if it already ran (one-shot tasks) or was cancelled before.
+         */
+        public boolean cancel() {
+            return state.compareAndSet(PENDING, CANCELLED);
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+    }
+
+    private static class Bucket {
+
+        private Timeout head, tail;
+
+        private void add(Timeout t) {
+            t.prev = tail;
+            t.next = null;
+            if (tail == null) head = t;
+            else tail.next = t;
+            tail = t;
+        }
+
+        private void remove(Timeout t) {
+            if (t.prev == null) head = t.next;
+            else t.prev.next = t.next;
+            if (t.next == null) tail = t.prev;
+            else t.next.prev = t.prev;
+            t.prev = t.next = null;
+        }
+
+    }
+
+}
@@ -0,0 +1,251 @@
+package dev.m00nl1ght.bot.util;
+
+import dev.m00nl1ght.bot.Logger;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Helix client on top of {@link TwitchAPI}.
+ * Lookups arriving within a short window are collected into one request of up to 100 ids,
+ * user records are cached by id and login, and requests are delayed according to the rate limit headers
+ * instead of running into 429 responses.
+ */
+public class HelixClient {
+
+    private static final int MAX_BATCH = 100;
+    private static final int MAX_RETRIES = 3;
+
+    private final TwitchAPI api;
+    private final long window;
+    private final ScheduledExecutorService scheduler;
+    private final LruCache<String, JSONObject> usersById;
+    private final LruCache<String, JSONObject> usersByLogin;
+
+    private final Batch userIdBatch = new Batch("users", "id", "id");
+    private final Batch userLoginBatch = new Batch("users", "login", "login");
+    private final Batch streamBatch = new Batch("streams", "user_id", "user_id");
+    private final Batch clipBatch = new Batch("clips", "id", "id");
+
+    private int rateRemaining = -1;
+    private long rateReset = 0L;
+    private long requests = 0L;
+    private long throttled = 0L;
+
+    public HelixClient(TwitchAPI api) {
+        this(api, 50L, 1000, 3600000L);
+    }
+
+    public HelixClient(TwitchAPI api, long window, int userCacheSize, long userCacheTtl) {
+        this.api = api;
+        this.window = window;
+        this.usersById = new LruCache<>(userCacheSize, userCacheTtl);
+        this.usersByLogin = new LruCache<>(userCacheSize, userCacheTtl);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "helix");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Completes with the user record, or null if there is no such user.
+     */
+    public CompletableFuture<JSONObject> getUserById(String id) {
+        final JSONObject cached = usersById.get(id);
+        return cached != null ? CompletableFuture.completedFuture(cached) : userIdBatch.enqueue(id);
+    }
+
+    /**
+     * Completes with the user record, or null if there is no such user.
+     */
+    public CompletableFuture<JSONObject> getUserByLogin(String login) {
+        final String key = login.toLowerCase(Locale.ROOT);
+        final JSONObject cached = usersByLogin.get(key);
+        return cached != null ? CompletableFuture.completedFuture(cached) : userLoginBatch.enqueue(key);
+    }
+
+    /**
+     * Completes with the stream of the given user, or null if the user is not live.
+     */
+    public CompletableFuture<JSONObject> getStream(String userId) {
+        return streamBatch.enqueue(userId);
+    }
+
+    /**
+     * Completes with the clip record, or null if there is no such clip.
+     */
+    public CompletableFuture<JSONObject> getClip(String id) {
+        return clipBatch.enqueue(id);
+    }
+
+    public synchronized long getRequestCount() {
+        return requests;
+    }
+
+    public synchronized long getThrottledCount() {
+        return throttled;
+    }
+
+    public LruCache<String, JSONObject> getUserCache() {
+        return usersById;
+    }
+
+    private void cacheUser(JSONObject user) {
+        final String id = user.optString("id", null);
+        final String login = user.optString("login", null);
+        if (id != null) usersById.put(id, user);
+        if (login != null) usersByLogin.put(login.toLowerCase(Locale.ROOT), user);
+    }
+
+    /**
+     * Reserves one request from the rate limit bucket, returns how long to wait if it is empty.
+     */
+    private synchronized long reserve() {
+        final long now = System.currentTimeMillis();
+        if (rateRemaining == 0 && now < rateReset) {
+            throttled++;
+            return rateReset - now;
+        }
+
+        if (rateRemaining > 0) rateRemaining--;
+        requests++;
+        return 0L;
+    }
+
+    private synchronized void updateLimits(HttpClient.Response response) {
+        final String remaining = response.getHeader("Ratelimit-Remaining");
+        final String reset = response.getHeader("Ratelimit-Reset");
+        try {
+            if (remaining != null) rateRemaining = Integer.parseInt(remaining.trim());
+            if (reset != null) rateReset = Long.parseLong(reset.trim()) * 1000L;
+        } catch (NumberFormatException e) {
+            Logger.warn("Invalid rate limit headers from Helix: " + remaining + " / " + reset);
+        }
+
+        if (response.getStatus() == 429) {
+            rateRemaining = 0;
+            if (rateReset <= System.currentTimeMillis()) rateReset = System.currentTimeMillis() + 1000L;
+        }
+    }
+
+    private class Batch {
+
+        private final String endpoint;
+        private final String param;
+        private final String field;
+        private Map<String, CompletableFuture<JSONObject>> pending = new LinkedHashMap<>();
+        private boolean scheduled = false;
+
+        private Batch(String endpoint, String param, String field) {
+            this.endpoint = endpoint;
+            this.param = param;
+            this.field = field;
+        }
+
+        private CompletableFuture<JSONObject> enqueue(String key) {
+            final Map<String, CompletableFuture<JSONObject>> full;
+            final CompletableFuture<JSONObject> future;
+            synchronized (this) {
+                final CompletableFuture<JSONObject> existing = pending.get(key);
+                if (existing != null) return existing;
+                future = new CompletableFuture<>();
+                pending.put(key, future);
+                if (pending.size() >= MAX_BATCH) {
+                    full = pending;
+                    pending = new LinkedHashMap<>();
+                } else {
+                    full = null;
+                    if (!scheduled) {
+                        scheduled = true;
+                        scheduler.schedule(this::flush, window, TimeUnit.MILLISECONDS);
+                    }
+                }
+            }
+
+            if (full != null) send(full, query(full), 0);
+            return future;
+        }
+
+        private void flush() {
+            final Map<String, CompletableFuture<JSONObject>> taken;
+            synchronized (this) {
+                taken = pending;
+                pending = new LinkedHashMap<>();
+                scheduled = false;
+            }
+
+            if (!taken.isEmpty()) send(taken, query(taken), 0);
+        }
+
+        private String query(Map<String, CompletableFuture<JSONObject>> batch) {
+            final StringBuilder query = new StringBuilder(endpoint).append('?');
+            if (endpoint.equals("streams")) query.append("first=").append(MAX_BATCH).append('&');
+            boolean first = true;
+            for (final String key : batch.keySet()) {
+                if (!first) query.append('&');
+                try {
+                    query.append(param).append('=').append(URLEncoder.encode(key, "UTF-8"));
+                } catch (UnsupportedEncodingException e) {
+                    throw new IllegalStateException(e);
+                }
+                first = false;
+            }
+            return query.toString();
+        }
+
+        private void send(Map<String, CompletableFuture<JSONObject>> batch, String query, int attempt) {
+            final long delay = reserve();
+            if (delay > 0) {
+                scheduler.schedule(() -> send(batch, query, attempt), delay, TimeUnit.MILLISECONDS);
+                return;
+            }
+
+            api.request(query).whenComplete((response, error) -> {
+                if (error != null) {
+                    fail(batch, error);
+                    return;
+                }
+
+                updateLimits(response);
+                if (response.getStatus() == 429 && attempt < MAX_RETRIES) {
+                    Logger.warn("Helix rate limit exceeded, retrying " + endpoint + " request");
+                    send(batch, query, attempt + 1);
+                    return;
+                }
+
+                try {
+                    final JSONArray data = new JSONObject(response.getBodyOrThrow()).getJSONArray("data");
+                    for (int i = 0; i < data.length(); i++) {
+                        final JSONObject item = data.getJSONObject(i);
+                        String key = item.optString(field, null);
+                        if (key == null) continue;
+                        if (field.equals("login")) key = key.toLowerCase(Locale.ROOT);
+                        if (endpoint.equals("users")) cacheUser(item);
+                        final CompletableFuture<JSONObject> future = batch.remove(key);
+                        if (future != null) future.complete(item);
+                    }
+                    for (final CompletableFuture<JSONObject> future : batch.values()) future.complete(null);
+                } catch (Exception e) {
+                    fail(batch, e);
+                }
+            });
+        }
+
+        private void fail(Map<String, CompletableFuture<JSONObject>> batch, Throwable error) {
+            Logger.warn("Helix " + endpoint + " request failed: " + error.getMessage());
+            for (final CompletableFuture<JSONObject> future : batch.values()) future.completeExceptionally(error);
+        }
+
+    }
+
+}
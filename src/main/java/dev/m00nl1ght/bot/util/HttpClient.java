@@ -0,0 +1,262 @@
+package dev.m00nl1ght.bot.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Shared HTTP client for all external API calls.
+ * Requests have connect and read timeouts and are limited per host. Bodies are always read completely
+ * so the JDK can return the connection to its keep-alive pool for the next request to the same host.
+ * Gzip encoded responses are decompressed while reading, bodies that are empty or not actually compressed are read as is.
+ * Every host gets its own bounded worker pool and circuit breaker, so a host that is down fails fast
+ * and cannot occupy the workers of the others. Only failures of the host itself count towards its circuit,
+ * requests rejected because its pool or permits are exhausted do not.
+ */
+public class HttpClient {
+
+    public static final HttpClient SHARED = new HttpClient(5000, 10000, 4, 32);
+
+    private static final int BREAKER_THRESHOLD = 5;
+    private static final long BREAKER_OPEN_TIME = 30000L;
+
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final int maxPerHost;
+    private final int maxQueuedPerHost;
+    private final Map<String, Upstream> hosts = new ConcurrentHashMap<>();
+
+    public HttpClient(int connectTimeout, int readTimeout, int maxPerHost, int maxQueuedPerHost) {
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.maxPerHost = maxPerHost;
+        this.maxQueuedPerHost = maxQueuedPerHost;
+    }
+
+    public CompletableFuture<Response> getAsync(String url) {
+        return getAsync(url, Collections.emptyMap());
+    }
+
+    public CompletableFuture<Response> getAsync(String url, Map<String, String> headers) {
+        final CompletableFuture<Response> future = new CompletableFuture<>();
+        try {
+            final URL target = new URL(url);
+            final Upstream upstream = upstream(target);
+            if (!upstream.breaker.tryAcquire()) throw new CircuitOpenException(target.getHost());
+            try {
+                upstream.executor.execute(() -> {
+                    try {
+                        future.complete(limited(upstream, target, headers));
+                    } catch (Throwable e) {
+                        future.completeExceptionally(e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                upstream.breaker.release();
+                throw new IOException("Too many pending requests to " + target.getHost());
+            }
+        } catch (IOException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public Response get(String url) throws IOException {
+        return get(url, Collections.emptyMap());
+    }
+
+    /**
+     * Performs a blocking GET request. Responses with error status codes are returned as well,
+     * only connection failures, timeouts and open circuits are thrown.
+     */
+    public Response get(String url, Map<String, String> headers) throws IOException {
+        final URL target = new URL(url);
+        final Upstream upstream = upstream(target);
+        if (!upstream.breaker.tryAcquire()) throw new CircuitOpenException(target.getHost());
+        return limited(upstream, target, headers);
+    }
+
+    public Map<String, CircuitBreaker.State> getCircuitStates() {
+        final Map<String, CircuitBreaker.State> states = new TreeMap<>();
+        hosts.forEach((host, upstream) -> states.put(host, upstream.breaker.getState()));
+        return states;
+    }
+
+    private Upstream upstream(URL target) {
+        return hosts.computeIfAbsent(target.getHost(), Upstream::new);
+    }
+
+    private Response limited(Upstream upstream, URL target, Map<String, String> headers) throws IOException {
+        final Semaphore permits = upstream.permits;
+        try {
+            if (!permits.tryAcquire(connectTimeout + readTimeout, TimeUnit.MILLISECONDS)) {
+                upstream.breaker.release();
+                throw new IOException("Too many concurrent requests to " + target.getHost());
+            }
+        } catch (InterruptedException e) {
+            upstream.breaker.release();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for " + target.getHost(), e);
+        }
+
+        try {
+            return execute(upstream, target, headers);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private Response execute(Upstream upstream, URL target, Map<String, String> headers) throws IOException {
+        try {
+            final HttpURLConnection connection = (HttpURLConnection) target.openConnection();
+            connection.setRequestMethod("GET");
+            connection.setConnectTimeout(connectTimeout);
+            connection.setReadTimeout(readTimeout);
+            for (final Map.Entry<String, String> header : headers.entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+
+            final int status = connection.getResponseCode();
+            InputStream stream = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            if (stream != null && "gzip".equalsIgnoreCase(connection.getContentEncoding())) stream = gunzip(stream);
+            final byte[] body = stream == null ? new byte[0] : readFully(stream);
+            // server errors count towards opening the circuit, client errors do not
+            if (status >= 500) upstream.breaker.onFailure();
+            else upstream.breaker.onSuccess();
+            return new Response(status, connection.getHeaderFields(), body, charset(connection.getContentType()));
+        } catch (IOException | RuntimeException e) {
+            upstream.breaker.onFailure();
+            throw e;
+        }
+    }
+
+    /**
+     * Wraps the stream in a decompressor if it starts with the gzip magic bytes.
+     */
+    private static InputStream gunzip(InputStream stream) throws IOException {
+        final PushbackInputStream in = new PushbackInputStream(stream, 2);
+        final int b1 = in.read();
+        final int b2 = b1 < 0 ? -1 : in.read();
+        if (b2 >= 0) in.unread(b2);
+        if (b1 >= 0) in.unread(b1);
+        return b1 == 0x1f && b2 == 0x8b ? new GZIPInputStream(in) : in;
+    }
+
+    private static byte[] readFully(InputStream stream) throws IOException {
+        try (InputStream in = stream) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) >= 0) out.write(buffer, 0, read);
+            return out.toByteArray();
+        }
+    }
+
+    private static Charset charset(String contentType) {
+        if (contentType != null) {
+            for (final String param : contentType.split(";")) {
+                final String p = param.trim();
+                if (p.regionMatches(true, 0, "charset=", 0, 8)) {
+                    try {
+                        return Charset.forName(p.substring(8).replace("\"", ""));
+                    } catch (Exception ignored) {}
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    public static class Response {
+
+        private final int status;
+        private final Map<String, List<String>> headers;
+        private final byte[] body;
+        private final Charset charset;
+
+        public Response(int status, Map<String, List<String>> headers, byte[] body, Charset charset) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+            this.charset = charset;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public boolean isSuccess() {
+            return status >= 200 && status < 300;
+        }
+
+        public String getHeader(String name) {
+            for (final Map.Entry<String, List<String>> entry : headers.entrySet()) {
+                if (name.equalsIgnoreCase(entry.getKey()) && !entry.getValue().isEmpty()) return entry.getValue().get(0);
+            }
+            return null;
+        }
+
+        public byte[] getBytes() {
+            return body;
+        }
+
+        public String getBody() {
+            return new String(body, charset);
+        }
+
+        /**
+         * Returns the body, or throws if the request was not successful.
+         */
+        public String getBodyOrThrow() throws IOException {
+            if (!isSuccess()) throw new IOException("HTTP " + status);
+            return getBody();
+        }
+
+    }
+
+    private class Upstream {
+
+        private final CircuitBreaker breaker;
+        private final Semaphore permits;
+        private final ThreadPoolExecutor executor;
+
+        private Upstream(String host) {
+            this.breaker = new CircuitBreaker(host, BREAKER_THRESHOLD, BREAKER_OPEN_TIME);
+            this.permits = new Semaphore(maxPerHost);
+            final AtomicInteger count = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(maxPerHost, maxPerHost, 60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(maxQueuedPerHost), r -> {
+                final Thread thread = new Thread(r, "http-" + host + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.executor.allowCoreThreadTimeOut(true);
+        }
+
+    }
+
+    /**
+     * Thrown without contacting the host while its circuit is open.
+     */
+    public static class CircuitOpenException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        public CircuitOpenException(String host) {
+            super(host + " is currently unavailable");
+        }
+
+    }
+
+}
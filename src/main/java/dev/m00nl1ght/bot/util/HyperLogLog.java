@@ -0,0 +1,59 @@
+package dev.m00nl1ght.bot.util;
+
+import java.util.Arrays;
+
+/**
+ * Fixed size distinct counter, with 2^p registers the standard error is about 1.04 / sqrt(2^p).
+ */
+public class HyperLogLog {
+
+    private final int p;
+    private final byte[] registers;
+
+    public HyperLogLog(int p) {
+        if (p < 4 || p > 16) throw new IllegalArgumentException("precision must be between 4 and 16");
+        this.p = p;
+        this.registers = new byte[1 << p];
+    }
+
+    public void add(long value) {
+        final long hash = mix(value);
+        final int idx = (int) (hash >>> (64 - p));
+        final int rank = Long.numberOfLeadingZeros((hash << p) | (1L << (p - 1))) + 1;
+        if (rank > registers[idx]) registers[idx] = (byte) rank;
+    }
+
+    public void merge(HyperLogLog other) {
+        if (other.p != p) throw new IllegalArgumentException("precision mismatch");
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) registers[i] = other.registers[i];
+        }
+    }
+
+    public long estimate() {
+        final int m = registers.length;
+        double sum = 0D;
+        int zeros = 0;
+        for (final byte r : registers) {
+            sum += 1D / (1L << r);
+            if (r == 0) zeros++;
+        }
+
+        final double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709 : 0.7213 / (1 + 1.079 / m);
+        final double raw = alpha * m * m / sum;
+        if (raw <= 2.5 * m && zeros > 0) return Math.round(m * Math.log(m / (double) zeros));
+        return Math.round(raw);
+    }
+
+    public void clear() {
+        Arrays.fill(registers, (byte) 0);
+    }
+
+    private static long mix(long z) {
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+}
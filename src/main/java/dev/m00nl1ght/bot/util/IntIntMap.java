@@ -0,0 +1,124 @@
+package dev.m00nl1ght.bot.util;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from int keys to int values, without boxing.
+ * Uses linear probing, removed entries are filled by shifting back the following entries of the cluster.
+ */
+public class IntIntMap {
+
+    private final int missing;
+    private int[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int mask;
+    private int size = 0;
+
+    /**
+     * @param expected number of entries the map should hold without resizing
+     * @param missing  value returned by get and remove for keys that are not present
+     */
+    public IntIntMap(int expected, int missing) {
+        this.missing = missing;
+        allocate(Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1);
+    }
+
+    public int get(int key) {
+        int i = mix(key) & mask;
+        while (used[i]) {
+            if (keys[i] == key) return values[i];
+            i = (i + 1) & mask;
+        }
+        return missing;
+    }
+
+    public boolean containsKey(int key) {
+        int i = mix(key) & mask;
+        while (used[i]) {
+            if (keys[i] == key) return true;
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    public int put(int key, int value) {
+        int i = mix(key) & mask;
+        while (used[i]) {
+            if (keys[i] == key) {
+                final int prev = values[i];
+                values[i] = value;
+                return prev;
+            }
+            i = (i + 1) & mask;
+        }
+        used[i] = true;
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 2 > keys.length) rehash(keys.length * 2);
+        return missing;
+    }
+
+    public int remove(int key) {
+        int i = mix(key) & mask;
+        while (used[i]) {
+            if (keys[i] == key) {
+                final int prev = values[i];
+                shiftBack(i);
+                size--;
+                return prev;
+            }
+            i = (i + 1) & mask;
+        }
+        return missing;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void shiftBack(int gap) {
+        int i = gap;
+        while (true) {
+            i = (i + 1) & mask;
+            if (!used[i]) break;
+            final int home = mix(keys[i]) & mask;
+            // the entry can fill the gap if its home slot is not cyclically between the gap and itself
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        used[gap] = false;
+    }
+
+    private void rehash(int capacity) {
+        final int[] oldKeys = keys;
+        final int[] oldValues = values;
+        final boolean[] oldUsed = used;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) put(oldKeys[i], oldValues[i]);
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int mix(int key) {
+        final int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+}
@@ -0,0 +1,194 @@
+package dev.m00nl1ght.bot.util;
+
+import java.util.*;
+
+/**
+ * Aho-Corasick automaton matching a fixed set of keywords in a single pass over the text.
+ * Instances are immutable after construction, scanning does not allocate.
+ */
+public class KeywordMatcher {
+
+    private final boolean ignoreCase;
+    private final int keywordCount;
+    private final int maxLength;
+    private final int[] lengths;
+
+    // per state: sorted outgoing edges in edgeChars/edgeTargets[edgeStart[s] .. edgeStart[s + 1])
+    private final int[] edgeStart;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+    private final int[] fail;
+    // per state: keywords ending here in outputs[outStart[s] .. outStart[s + 1]), dictLink points to the next state with outputs
+    private final int[] outStart;
+    private final int[] outputs;
+    private final int[] dictLink;
+
+    public KeywordMatcher(List<String> keywords, boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+        this.keywordCount = keywords.size();
+        this.lengths = new int[keywordCount];
+
+        final List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        final List<List<Integer>> out = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        out.add(new ArrayList<>());
+
+        int maxLength = 0;
+        for (int k = 0; k < keywordCount; k++) {
+            final String keyword = keywords.get(k);
+            lengths[k] = keyword.length();
+            maxLength = Math.max(maxLength, keyword.length());
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                final char c = normalize(keyword.charAt(i));
+                Integer next = trie.get(state).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.get(state).put(c, next);
+                    trie.add(new TreeMap<>());
+                    out.add(new ArrayList<>());
+                }
+                state = next;
+            }
+            out.get(state).add(k);
+        }
+        this.maxLength = maxLength;
+
+        final int states = trie.size();
+        this.fail = new int[states];
+        this.dictLink = new int[states];
+        this.edgeStart = new int[states + 1];
+        this.outStart = new int[states + 1];
+
+        int edges = 0, outs = 0;
+        for (int s = 0; s < states; s++) {
+            edgeStart[s] = edges;
+            outStart[s] = outs;
+            edges += trie.get(s).size();
+            outs += out.get(s).size();
+        }
+        edgeStart[states] = edges;
+        outStart[states] = outs;
+
+        this.edgeChars = new char[edges];
+        this.edgeTargets = new int[edges];
+        this.outputs = new int[outs];
+        for (int s = 0; s < states; s++) {
+            int e = edgeStart[s];
+            for (final Map.Entry<Character, Integer> edge : trie.get(s).entrySet()) {
+                edgeChars[e] = edge.getKey();
+                edgeTargets[e++] = edge.getValue();
+            }
+            int o = outStart[s];
+            for (final Integer k : out.get(s)) outputs[o++] = k;
+        }
+
+        // breadth first, so failure links of shallower states are always known
+        dictLink[0] = -1;
+        final ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int e = edgeStart[0]; e < edgeStart[1]; e++) {
+            fail[edgeTargets[e]] = 0;
+            dictLink[edgeTargets[e]] = -1;
+            queue.add(edgeTargets[e]);
+        }
+
+        while (!queue.isEmpty()) {
+            final int s = queue.poll();
+            for (int e = edgeStart[s]; e < edgeStart[s + 1]; e++) {
+                final int t = edgeTargets[e];
+                int f = fail[s];
+                int n;
+                while ((n = edge(f, edgeChars[e])) < 0 && f != 0) f = fail[f];
+                fail[t] = n < 0 ? 0 : n;
+                dictLink[t] = hasOutput(fail[t]) ? fail[t] : dictLink[fail[t]];
+                queue.add(t);
+            }
+        }
+    }
+
+    /**
+     * Returns the state to start scanning from.
+     */
+    public int start() {
+        return 0;
+    }
+
+    /**
+     * Advances the automaton by one character.
+     */
+    public int next(int state, char c) {
+        c = normalize(c);
+        int n;
+        while ((n = edge(state, c)) < 0 && state != 0) state = fail[state];
+        return n < 0 ? 0 : n;
+    }
+
+    /**
+     * Reports all keywords ending in the given state, end is the exclusive end index of the match in the text.
+     * Returns false if the handler requested to stop.
+     */
+    public boolean report(int state, int end, MatchHandler handler) {
+        for (int s = hasOutput(state) ? state : dictLink[state]; s >= 0; s = dictLink[s]) {
+            for (int o = outStart[s]; o < outStart[s + 1]; o++) {
+                final int k = outputs[o];
+                if (!handler.onMatch(k, end - lengths[k], end)) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Scans the given text and reports every keyword occurrence to the handler.
+     * Empty keywords are never reported.
+     */
+    public void scan(CharSequence text, MatchHandler handler) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = next(state, text.charAt(i));
+            if (!report(state, i + 1, handler)) return;
+        }
+    }
+
+    public int getKeywordCount() {
+        return keywordCount;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    public int getLength(int keyword) {
+        return lengths[keyword];
+    }
+
+    private boolean hasOutput(int state) {
+        return outStart[state] < outStart[state + 1] && state != 0;
+    }
+
+    private int edge(int state, char c) {
+        int lo = edgeStart[state], hi = edgeStart[state + 1] - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            final char m = edgeChars[mid];
+            if (m < c) lo = mid + 1;
+            else if (m > c) hi = mid - 1;
+            else return edgeTargets[mid];
+        }
+        return -1;
+    }
+
+    private char normalize(char c) {
+        return ignoreCase ? Character.toLowerCase(c) : c;
+    }
+
+    @FunctionalInterface
+    public interface MatchHandler {
+
+        /**
+         * Called for each match, return false to stop scanning.
+         */
+        boolean onMatch(int keyword, int start, int end);
+
+    }
+
+}
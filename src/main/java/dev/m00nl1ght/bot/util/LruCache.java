@@ -0,0 +1,82 @@
+package dev.m00nl1ght.bot.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded map that drops the least recently used entry once full, entries also expire after a fixed time.
+ */
+public class LruCache<K, V> {
+
+    private final LinkedHashMap<K, Node<V>> map;
+    private final int maxSize;
+    private final long ttl;
+    private long hits = 0L;
+    private long misses = 0L;
+
+    public LruCache(int maxSize, long ttl) {
+        this.maxSize = Math.max(1, maxSize);
+        this.ttl = ttl;
+        this.map = new LinkedHashMap<K, Node<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Node<V>> eldest) {
+                return size() > LruCache.this.maxSize;
+            }
+        };
+    }
+
+    public synchronized V get(K key) {
+        final Node<V> entry = map.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+
+        if (System.currentTimeMillis() >= entry.expires) {
+            map.remove(key);
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return entry.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        map.put(key, new Node<>(value, System.currentTimeMillis() + ttl));
+    }
+
+    public synchronized V remove(K key) {
+        final Node<V> entry = map.remove(key);
+        return entry == null ? null : entry.value;
+    }
+
+    public synchronized void clear() {
+        map.clear();
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private static class Node<V> {
+
+        private final V value;
+        private final long expires;
+
+        private Node(V value, long expires) {
+            this.value = value;
+            this.expires = expires;
+        }
+
+    }
+
+}
@@ -5,7 +5,9 @@ import java.util.Optional;
 
 public class SearchUtil {
 
+    @SuppressWarnings("unchecked")
     public static <T> Optional<T> findMatch(Map<String, T> map, String query, double threshold) {
+        if (map instanceof FuzzyMap) return ((FuzzyMap<T>) map).findMatch(query, threshold);
         final T ret = map.get(query);
         if (ret != null) return Optional.of(ret);
         double bestV = 0D; String bestO = null;
@@ -19,6 +21,7 @@ public class SearchUtil {
     }
 
     public static Optional<String> findMatchKey(Map<String, ?> map, String query, double threshold) {
+        if (map instanceof FuzzyMap) return ((FuzzyMap<?>) map).findMatchKey(query, threshold);
         final Object ret = map.get(query);
         if (ret != null) return Optional.of(query);
         double bestV = 0D; String bestO = null;
@@ -90,4 +93,46 @@ public class SearchUtil {
         return p[n];
     }
 
+    /**
+     * Edit distance that gives up once it is certain to exceed max, in which case max + 1 is returned.
+     */
+    public static int editDistance(CharSequence left, CharSequence right, int max) {
+        int n = left.length();
+        int m = right.length();
+
+        if (Math.abs(n - m) > max) return max + 1;
+        if (n == 0) return m;
+        if (m == 0) return n;
+
+        if (n > m) {
+            final CharSequence tmp = left;
+            left = right;
+            right = tmp;
+            n = m;
+            m = right.length();
+        }
+
+        final int[] p = new int[n + 1];
+        for (int i = 0; i <= n; i++) p[i] = i;
+
+        for (int j = 1; j <= m; j++) {
+            int upperLeft = p[0];
+            final char rightJ = right.charAt(j - 1);
+            p[0] = j;
+            int rowMin = j;
+
+            for (int i = 1; i <= n; i++) {
+                final int upper = p[i];
+                final int cost = left.charAt(i - 1) == rightJ ? 0 : 1;
+                p[i] = Math.min(Math.min(p[i - 1] + 1, p[i] + 1), upperLeft + cost);
+                upperLeft = upper;
+                if (p[i] < rowMin) rowMin = p[i];
+            }
+
+            if (rowMin > max) return max + 1;
+        }
+
+        return p[n] > max ? max + 1 : p[n];
+    }
+
 }
@@ -0,0 +1,185 @@
+package dev.m00nl1ght.bot.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Space-Saving heavy hitter sketch over int keys, tracks the approximate top k keys with fixed memory.
+ * When a new key arrives while all k counters are taken, it replaces the key with the lowest count
+ * and inherits that count as its possible overestimation. Any key that occurs more often than
+ * total / k times is guaranteed to be tracked. Counters are kept in a min-heap, so an update
+ * takes O(log k) regardless of how many distinct keys were seen.
+ */
+public class SpaceSaving {
+
+    private final int capacity;
+    private final int[] keys;
+    private final long[] counts;
+    private final long[] errors;
+    private final String[] labels;
+    private final int[] heap;
+    private final int[] heapPos;
+    private final IntIntMap index;
+    private int size = 0;
+    private long total = 0L;
+
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be at least 1");
+        this.capacity = capacity;
+        this.keys = new int[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.labels = new String[capacity];
+        this.heap = new int[capacity];
+        this.heapPos = new int[capacity];
+        this.index = new IntIntMap(capacity, -1);
+    }
+
+    /**
+     * Counts the key the given number of times and returns the counter slot now used by it.
+     * The slot stays valid until the next call to offer or clear.
+     */
+    public int offer(int key, long by) {
+        total += by;
+        int slot = index.get(key);
+        boolean appended = false;
+        if (slot < 0) {
+            if (size < capacity) {
+                appended = true;
+                slot = size;
+                heap[size] = slot;
+                heapPos[slot] = size;
+                size++;
+                counts[slot] = 0L;
+                errors[slot] = 0L;
+            } else {
+                slot = heap[0];
+                index.remove(keys[slot]);
+                errors[slot] = counts[slot];
+            }
+            keys[slot] = key;
+            labels[slot] = null;
+            index.put(key, slot);
+        }
+        counts[slot] += by;
+        // a new counter starts at the bottom of the heap and may be smaller than its parents, existing counters only grow
+        if (appended) siftUp(heapPos[slot]);
+        else siftDown(heapPos[slot]);
+        return slot;
+    }
+
+    public String getLabel(int slot) {
+        return labels[slot];
+    }
+
+    public void setLabel(int slot, String label) {
+        labels[slot] = label;
+    }
+
+    /**
+     * Returns up to n tracked keys with the highest counts, highest first.
+     */
+    public List<Entry> top(int n) {
+        final Integer[] slots = new Integer[size];
+        for (int i = 0; i < size; i++) slots[i] = i;
+        Arrays.sort(slots, (a, b) -> Long.compare(counts[b], counts[a]));
+        final List<Entry> ret = new ArrayList<>(Math.min(n, size));
+        for (int i = 0; i < Math.min(n, size); i++) {
+            final int slot = slots[i];
+            ret.add(new Entry(keys[slot], labels[slot], counts[slot], errors[slot]));
+        }
+        return ret;
+    }
+
+    public void clear() {
+        index.clear();
+        Arrays.fill(labels, null);
+        size = 0;
+        total = 0L;
+    }
+
+    /**
+     * Number of keys currently tracked, at most the capacity.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Sum of all counts offered since the last clear.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private void siftUp(int pos) {
+        final int slot = heap[pos];
+        final long count = counts[slot];
+        while (pos > 0) {
+            final int parent = (pos - 1) / 2;
+            if (counts[heap[parent]] <= count) break;
+            heap[pos] = heap[parent];
+            heapPos[heap[pos]] = pos;
+            pos = parent;
+        }
+        heap[pos] = slot;
+        heapPos[slot] = pos;
+    }
+
+    private void siftDown(int pos) {
+        final int slot = heap[pos];
+        final long count = counts[slot];
+        while (true) {
+            int child = pos * 2 + 1;
+            if (child >= size) break;
+            if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) child++;
+            if (counts[heap[child]] >= count) break;
+            heap[pos] = heap[child];
+            heapPos[heap[pos]] = pos;
+            pos = child;
+        }
+        heap[pos] = slot;
+        heapPos[slot] = pos;
+    }
+
+    public static class Entry {
+
+        private final int key;
+        private final String label;
+        private final long count;
+        private final long error;
+
+        private Entry(int key, String label, long count, long error) {
+            this.key = key;
+            this.label = label;
+            this.count = count;
+            this.error = error;
+        }
+
+        public int getKey() {
+            return key;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * The counted occurrences, which may overestimate the real number by up to {@link #getError()}.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+
+    }
+
+}
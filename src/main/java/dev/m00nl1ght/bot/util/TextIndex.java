@@ -0,0 +1,172 @@
+package dev.m00nl1ght.bot.util;
+
+import java.util.*;
+
+/**
+ * Inverted full-text index, documents are ranked with BM25.
+ * Text is split into lowercase letter/digit tokens, query tokens ending with '*' match all terms with that prefix.
+ * Documents can be added, replaced and removed at any time, the index is updated incrementally.
+ */
+public class TextIndex<K> {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int MAX_EXPANSIONS = 64;
+
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final Map<K, Integer> slots = new HashMap<>();
+    private final List<K> keys = new ArrayList<>();
+    private final List<String[]> docTerms = new ArrayList<>();
+    private int[] docLengths = new int[16];
+    private final Deque<Integer> free = new ArrayDeque<>();
+    private long totalLength = 0L;
+
+    public synchronized void put(K key, String text) {
+        remove(key);
+        final List<String> tokens = tokenize(text);
+        final Map<String, Integer> freq = new HashMap<>();
+        for (final String token : tokens) freq.merge(token, 1, Integer::sum);
+
+        final int slot;
+        if (free.isEmpty()) {
+            slot = keys.size();
+            keys.add(key);
+            docTerms.add(null);
+            if (slot >= docLengths.length) docLengths = Arrays.copyOf(docLengths, slot * 2);
+        } else {
+            slot = free.pop();
+            keys.set(slot, key);
+        }
+
+        slots.put(key, slot);
+        docTerms.set(slot, freq.keySet().toArray(new String[0]));
+        docLengths[slot] = tokens.size();
+        totalLength += tokens.size();
+        for (final Map.Entry<String, Integer> entry : freq.entrySet()) {
+            terms.computeIfAbsent(entry.getKey(), t -> new Postings()).add(slot, entry.getValue());
+        }
+    }
+
+    public synchronized boolean remove(K key) {
+        final Integer slot = slots.remove(key);
+        if (slot == null) return false;
+        for (final String term : docTerms.get(slot)) {
+            final Postings postings = terms.get(term);
+            postings.remove(slot);
+            if (postings.size == 0) terms.remove(term);
+        }
+        totalLength -= docLengths[slot];
+        docLengths[slot] = 0;
+        docTerms.set(slot, null);
+        keys.set(slot, null);
+        free.push(slot);
+        return true;
+    }
+
+    public synchronized void clear() {
+        terms.clear();
+        slots.clear();
+        keys.clear();
+        docTerms.clear();
+        free.clear();
+        totalLength = 0L;
+    }
+
+    public synchronized int size() {
+        return slots.size();
+    }
+
+    /**
+     * Returns the keys of the best matching documents, best first.
+     */
+    public synchronized List<K> search(String query, int limit) {
+        final int docs = slots.size();
+        if (docs == 0 || limit <= 0) return Collections.emptyList();
+        final float avgLength = Math.max(1f, totalLength / (float) docs);
+        final float[] scores = new float[keys.size()];
+        final List<Integer> touched = new ArrayList<>();
+
+        for (final String raw : query.toLowerCase(Locale.ROOT).split("\\s+")) {
+            final boolean prefix = raw.endsWith("*");
+            for (final String token : tokenize(prefix ? raw.substring(0, raw.length() - 1) : raw)) {
+                if (prefix) {
+                    int expansions = 0;
+                    for (final Postings postings : terms.subMap(token, token + Character.MAX_VALUE).values()) {
+                        score(postings, docs, avgLength, scores, touched);
+                        if (++expansions >= MAX_EXPANSIONS) break;
+                    }
+                } else {
+                    final Postings postings = terms.get(token);
+                    if (postings != null) score(postings, docs, avgLength, scores, touched);
+                }
+            }
+        }
+
+        final PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1, Comparator.comparingDouble(s -> scores[s]));
+        for (final int slot : touched) {
+            top.add(slot);
+            if (top.size() > limit) top.poll();
+        }
+
+        final List<K> result = new ArrayList<>(top.size());
+        while (!top.isEmpty()) result.add(keys.get(top.poll()));
+        Collections.reverse(result);
+        return result;
+    }
+
+    private void score(Postings postings, int docs, float avgLength, float[] scores, List<Integer> touched) {
+        final float idf = (float) Math.log(1 + (docs - postings.size + 0.5) / (postings.size + 0.5));
+        for (int i = 0; i < postings.size; i++) {
+            final int slot = postings.docs[i];
+            final int tf = postings.freqs[i];
+            if (scores[slot] == 0f) touched.add(slot);
+            scores[slot] += idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * docLengths[slot] / avgLength));
+        }
+    }
+
+    public static List<String> tokenize(String text) {
+        final List<String> tokens = new ArrayList<>();
+        final String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            final boolean word = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static class Postings {
+
+        private int[] docs = new int[4];
+        private int[] freqs = new int[4];
+        private int size = 0;
+
+        private void add(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            size++;
+        }
+
+        private void remove(int doc) {
+            for (int i = 0; i < size; i++) {
+                if (docs[i] == doc) {
+                    size--;
+                    docs[i] = docs[size];
+                    freqs[i] = freqs[size];
+                    return;
+                }
+            }
+        }
+
+    }
+
+}
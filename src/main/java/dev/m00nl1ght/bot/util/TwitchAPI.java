@@ -1,35 +1,45 @@
 package dev.m00nl1ght.bot.util;
 
-import dev.m00nl1ght.bot.CommandException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.util.stream.Collectors;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class TwitchAPI {
 
     private final String clientId;
+    private final Map<String, String> headers;
 
     public TwitchAPI(String clientId) {
         this.clientId = clientId;
+        this.headers = Collections.singletonMap("Client-ID", clientId);
     }
 
     public JSONObject get(String query) {
         try {
-            final URL url = new URL(("https://api.twitch.tv/helix/" + query));
-            final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setRequestProperty("Client-ID", clientId);
-            try (BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-                String response = in.lines().collect(Collectors.joining());
-                return new JSONObject(response);
-            }
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to get data from Twitch API", e);
+            return getAsync(query).join();
+        } catch (CompletionException e) {
+            throw new RuntimeException("Failed to get data from Twitch API", e.getCause());
         }
     }
 
+    public CompletableFuture<JSONObject> getAsync(String query) {
+        return request(query).thenApply(response -> {
+            try {
+                return new JSONObject(response.getBodyOrThrow());
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Returns the raw response, including status and rate limit headers.
+     */
+    public CompletableFuture<HttpClient.Response> request(String query) {
+        return HttpClient.SHARED.getAsync("https://api.twitch.tv/helix/" + query, headers);
+    }
+
 }
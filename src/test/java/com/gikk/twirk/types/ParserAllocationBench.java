@@ -0,0 +1,200 @@
+package com.gikk.twirk.types;
+
+import com.gikk.twirk.types.cheer.Cheer;
+import com.gikk.twirk.types.cheer.CheerParser;
+import com.gikk.twirk.types.emote.Emote;
+import com.gikk.twirk.types.emote.EmoteParser;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures the bytes allocated and the time spent per message by the emote and cheer parsers.
+ * Allocations are read from the HotSpot {@link com.sun.management.ThreadMXBean}, so this needs a HotSpot based JVM.
+ * Each parser is measured next to a copy of the implementation it replaced, which is kept here as the baseline.
+ * Before measuring, both versions are checked to produce the same results, the cheer parsers on random input.
+ *
+ * <p>Run it with the main classes on the classpath, optionally passing the number of iterations per round.
+ */
+public class ParserAllocationBench {
+
+    private static final Pattern CHEER_REGEX = Pattern.compile("([a-zA-Z]+([1-9][0-9]+\\b(?<=\\w)))");
+
+    private static final String CONTENT = "tmrToad tmrHat tmrHat Kappa hello world Kappa";
+    private static final String TAG = "@badge-info=;color=#FF0000;emotes=15614:0-6/4685:8-13,15-20/25:22-26,40-44;flags=;id=x";
+    private static final String CHEER_CONTENT = "cheer100 great stream cheer100 keep going Kappa cheer100";
+
+    public static void main(String[] args) {
+        final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        checkCheerParity(20000);
+        checkEmoteParity();
+
+        final com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long thread = Thread.currentThread().getId();
+        final TagMap cheerTags = TagMap.getDefault("@bits=300");
+        final long[] bytes = new long[4], nanos = new long[4];
+        long sink = 0;
+
+        // the first round only warms up the JIT
+        for (int round = 0; round < 3; round++) {
+            for (int run = 0; run < 4; run++) {
+                final long b0 = mx.getThreadAllocatedBytes(thread), t0 = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    switch (run) {
+                        case 0:
+                            for (final OldEmote emote : oldEmotes(CONTENT, TAG)) sink += emote.indices.size();
+                            break;
+                        case 1:
+                            for (final Emote emote : EmoteParser.parseEmotes(CONTENT, TAG)) sink += emote.getOccurrences();
+                            break;
+                        case 2:
+                            for (final OldCheer cheer : oldCheers(cheerTags, CHEER_CONTENT)) sink += cheer.bits;
+                            break;
+                        default:
+                            for (final Cheer cheer : CheerParser.parseCheer(cheerTags, CHEER_CONTENT)) sink += cheer.getBits();
+                    }
+                }
+                bytes[run] = (mx.getThreadAllocatedBytes(thread) - b0) / iterations;
+                nanos[run] = (System.nanoTime() - t0) / iterations;
+            }
+            if (round == 0) continue;
+            System.out.printf("emotes: old %d B/msg, %d ns/msg | new %d B/msg, %d ns/msg%n", bytes[0], nanos[0], bytes[1], nanos[1]);
+            System.out.printf("cheers: old %d B/msg, %d ns/msg | new %d B/msg, %d ns/msg%n", bytes[2], nanos[2], bytes[3], nanos[3]);
+        }
+
+        // keeps the loops from being optimized away
+        if (sink == 42) System.out.println();
+    }
+
+    private static void checkCheerParity(int samples) {
+        final Random random = new Random(1);
+        final String alphabet = "ab_0129 ,!C";
+        final TagMap tags = TagMap.getDefault("@bits=100000");
+        for (int n = 0; n < samples; n++) {
+            final StringBuilder content = new StringBuilder();
+            final int length = random.nextInt(30);
+            for (int i = 0; i < length; i++) content.append(alphabet.charAt(random.nextInt(alphabet.length())));
+
+            final List<Cheer> found = CheerParser.parseCheer(tags, content.toString());
+            final List<OldCheer> expected = oldCheers(tags, content.toString());
+            boolean equal = found.size() == expected.size();
+            for (int i = 0; equal && i < found.size(); i++) {
+                equal = expected.get(i).message.equals(found.get(i).getMessage()) && expected.get(i).bits == found.get(i).getBits();
+            }
+            if (!equal) throw new IllegalStateException("Cheer parser differs from the regex for: " + content);
+        }
+        System.out.println("cheer parser matches the regex on " + samples + " samples");
+    }
+
+    private static void checkEmoteParity() {
+        final List<Emote> found = EmoteParser.parseEmotes(CONTENT, TAG);
+        final List<OldEmote> expected = oldEmotes(CONTENT, TAG);
+        boolean equal = found.size() == expected.size();
+        for (int i = 0; equal && i < found.size(); i++) {
+            final Emote emote = found.get(i);
+            final OldEmote old = expected.get(i);
+            equal = emote.getEmoteID() == old.emoteID && emote.getPattern().equals(old.pattern) && emote.getOccurrences() == old.indices.size();
+            for (int j = 0; equal && j < old.indices.size(); j++) {
+                equal = emote.getBegin(j) == old.indices.get(j).beingIndex && emote.getEnd(j) == old.indices.get(j).endIndex;
+            }
+        }
+        if (!equal) throw new IllegalStateException("Emote parser differs from the old parser for: " + TAG);
+    }
+
+    /**
+     * The emote parser as it was before it scanned the tag in place, copying the emotes section and every number.
+     */
+    private static List<OldEmote> oldEmotes(String content, String tag) {
+        final List<OldEmote> emotes = new LinkedList<>();
+        final int begin = tag.indexOf("emotes=");
+        final int end = tag.indexOf(';', begin);
+        if (begin == -1 || begin + 7 == end) return emotes;
+
+        OldEmote emote = new OldEmote();
+        final StringBuilder str = new StringBuilder();
+        String emoteID = "", beginIndex = "";
+        for (final char c : tag.substring(begin + 7, end).toCharArray()) {
+            switch (c) {
+                case ':':
+                    emoteID = str.toString();
+                    str.setLength(0);
+                    break;
+                case '-':
+                    beginIndex = str.toString();
+                    str.setLength(0);
+                    break;
+                case ',':
+                    emote.indices.add(new Emote.EmoteIndices(Integer.parseInt(beginIndex), Integer.parseInt(str.toString()) + 1));
+                    str.setLength(0);
+                    break;
+                case '/':
+                    finishOldEmote(content, emotes, emote, emoteID, beginIndex, str.toString());
+                    emote = new OldEmote();
+                    str.setLength(0);
+                    break;
+                default:
+                    str.append(c);
+            }
+        }
+        finishOldEmote(content, emotes, emote, emoteID, beginIndex, str.toString());
+        return emotes;
+    }
+
+    private static void finishOldEmote(String content, List<OldEmote> emotes, OldEmote emote, String emoteID, String beginIndex, String endIndex) {
+        final int begin = Integer.parseInt(beginIndex);
+        final int end = Integer.parseInt(endIndex) + 1;
+        emote.indices.add(new Emote.EmoteIndices(begin, end));
+        emote.emoteID = Integer.parseInt(emoteID);
+        emote.pattern = content.substring(begin, end);
+        emotes.add(emote);
+    }
+
+    /**
+     * The cheer parser as it was before it scanned the content in place, matching a regular expression.
+     */
+    private static List<OldCheer> oldCheers(TagMap tags, String content) {
+        final List<OldCheer> list = new ArrayList<>();
+        final int bits = tags.getAsInt(TwitchTags.BITS);
+        if (bits == -1) return list;
+
+        final Matcher matcher = CHEER_REGEX.matcher(content);
+        int found = 0;
+        while (matcher.find() && found < bits) {
+            // the scanner skips amounts that do not fit an int, where parsing the regex match used to throw
+            if (matcher.group(2).length() > 9) continue;
+            final int amount = Integer.parseInt(matcher.group(2));
+            found += amount;
+            list.add(new OldCheer(amount, matcher.group(1)));
+        }
+        return list;
+    }
+
+    /**
+     * Same fields as the emote the old parser created, which kept its indices in a linked list and cut the pattern eagerly.
+     */
+    private static class OldEmote {
+
+        private final LinkedList<Emote.EmoteIndices> indices = new LinkedList<>();
+        private int emoteID;
+        private String pattern;
+
+    }
+
+    private static class OldCheer {
+
+        private final int bits;
+        private final String message;
+
+        private OldCheer(int bits, String message) {
+            this.bits = bits;
+            this.message = message;
+        }
+
+    }
+
+}
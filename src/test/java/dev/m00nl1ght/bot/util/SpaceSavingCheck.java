@@ -0,0 +1,109 @@
+package dev.m00nl1ght.bot.util;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Checks the eviction order of {@link SpaceSaving} and the removal of entries from {@link IntIntMap}.
+ * Run it with the main classes on the classpath, it throws on the first violation.
+ */
+public class SpaceSavingCheck {
+
+    public static void main(String[] args) {
+        checkHeavyKeyKept();
+        checkEvictsMinimum();
+        checkIntIntMap();
+        System.out.println("all checks passed");
+    }
+
+    /**
+     * A heavy key offered first must not be evicted by the lighter keys offered after it,
+     * which is the order the emote stats are restored in after a restart.
+     */
+    private static void checkHeavyKeyKept() {
+        final SpaceSaving sketch = new SpaceSaving(3);
+        sketch.offer(1, 100);
+        sketch.offer(2, 1);
+        sketch.offer(3, 1);
+        sketch.offer(4, 1);
+        final List<SpaceSaving.Entry> top = sketch.top(3);
+        check(top.get(0).getKey() == 1 && top.get(0).getCount() == 100, "heavy key was evicted: " + describe(top));
+
+        final SpaceSaving restored = new SpaceSaving(16);
+        for (int key = 0; key < 16; key++) restored.offer(key, 1000 - key * 10);
+        restored.offer(100, 1);
+        for (final SpaceSaving.Entry entry : restored.top(16)) {
+            check(entry.getKey() != 15, "restored sketch evicted a heavier key than the minimum: " + describe(restored.top(16)));
+        }
+    }
+
+    /**
+     * A new key must always replace a key with the lowest count and inherit that count as its error.
+     */
+    private static void checkEvictsMinimum() {
+        final Random random = new Random(1);
+        for (int run = 0; run < 200; run++) {
+            final int capacity = 1 + random.nextInt(12);
+            final SpaceSaving sketch = new SpaceSaving(capacity);
+            final Map<Integer, Long> tracked = new HashMap<>();
+            for (int step = 0; step < 500; step++) {
+                final int key = random.nextInt(40);
+                final long by = 1 + random.nextInt(random.nextBoolean() ? 3 : 200);
+                final boolean evicts = !tracked.containsKey(key) && tracked.size() == capacity;
+                final long min = tracked.values().stream().mapToLong(Long::longValue).min().orElse(0L);
+
+                sketch.offer(key, by);
+                tracked.clear();
+                for (final SpaceSaving.Entry entry : sketch.top(capacity)) tracked.put(entry.getKey(), entry.getCount());
+
+                if (evicts) {
+                    check(tracked.get(key) == min + by, "new key did not replace the minimum " + min + ": " + describe(sketch.top(capacity)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Random puts and removes on a small key range, so clusters wrap around the table and removals have to shift them back.
+     */
+    private static void checkIntIntMap() {
+        final Random random = new Random(2);
+        final IntIntMap map = new IntIntMap(4, -1);
+        final Map<Integer, Integer> expected = new HashMap<>();
+        for (int step = 0; step < 200000; step++) {
+            final int key = random.nextInt(48) * (random.nextBoolean() ? 1 : -65536);
+            if (random.nextInt(3) == 0) {
+                final Integer prev = expected.remove(key);
+                check(map.remove(key) == (prev == null ? -1 : prev), "remove returned the wrong value for " + key);
+            } else {
+                final int value = random.nextInt(1000);
+                final Integer prev = expected.put(key, value);
+                check(map.put(key, value) == (prev == null ? -1 : prev), "put returned the wrong value for " + key);
+            }
+
+            if (step % 64 == 0) {
+                check(map.size() == expected.size(), "size is " + map.size() + " instead of " + expected.size());
+                for (int k = 0; k < 48; k++) {
+                    for (final int probe : new int[]{k, k * -65536}) {
+                        final Integer value = expected.get(probe);
+                        check(map.get(probe) == (value == null ? -1 : value), "lost or stale entry for " + probe);
+                        check(map.containsKey(probe) == (value != null), "containsKey is wrong for " + probe);
+                    }
+                }
+            }
+        }
+    }
+
+    private static String describe(List<SpaceSaving.Entry> entries) {
+        final StringBuilder str = new StringBuilder();
+        for (final SpaceSaving.Entry entry : entries) str.append(entry.getKey()).append('=').append(entry.getCount()).append(' ');
+        return str.toString().trim();
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+
+}